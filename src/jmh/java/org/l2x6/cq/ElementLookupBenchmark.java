@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * Compares the ways of looking up container elements such as {@code project/dependencies} in a {@code pom.xml} DOM:
+ * evaluating an XPath expression from scratch, evaluating a cached compiled XPath expression and walking the child
+ * elements directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ElementLookupBenchmark {
+
+    @Param({ "dependencies", "modules", "properties" })
+    String container;
+
+    private Document document;
+    private XPath xPath;
+    private String[] path;
+    private String expression;
+
+    @Setup
+    public void setup() {
+        document = PomSorter.parse(Paths.get("src/test/resources/projects/pom-sorter/mvnd-rules/module-3/pom.xml"));
+        xPath = PomTransformer.xPath();
+        path = new String[] { "project", container };
+        expression = PomTransformer.anyNs(path);
+    }
+
+    @Benchmark
+    public Node xPathEvaluate() throws XPathExpressionException {
+        return (Node) xPath.evaluate(PomTransformer.anyNs(path), document, XPathConstants.NODE);
+    }
+
+    @Benchmark
+    public Node compiledXPath() throws XPathExpressionException {
+        return (Node) PomTransformer.compile(expression).evaluate(document, XPathConstants.NODE);
+    }
+
+    @Benchmark
+    public Node childElementWalk() {
+        return PomTransformer.childElement(document, path);
+    }
+
+}
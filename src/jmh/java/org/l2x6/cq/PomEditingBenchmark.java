@@ -0,0 +1,237 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.l2x6.cq.PomTransformer.Engine;
+import org.l2x6.cq.PomTransformer.Transformation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the operations performed by {@code cq:format} on a synthetic {@code pom.xml} file having {@link #size}
+ * modules, managed dependencies and dependencies, all of them in random order. The synthetic POM is generated in
+ * memory, so these benchmarks do not need anything but the JMH dependencies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PomEditingBenchmark {
+    private static final Path POM_XML_PATH = Paths.get("pom.xml");
+
+    @Param({ "50", "500", "5000" })
+    int size;
+
+    private String pom;
+    private Set<Gavtcs> virtualDeps;
+    private Gavtcs[] gavtcs;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        final List<Gavtcs> allDeps = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final String groupId;
+            switch (i % 3) {
+            case 0:
+                groupId = "org.apache.camel.quarkus";
+                break;
+            case 1:
+                groupId = "org.apache.camel";
+                break;
+            default:
+                groupId = "org.acme.group" + (i % 7);
+                break;
+            }
+            allDeps.add(new Gavtcs(groupId, "artifact-" + i, "1.0." + i));
+        }
+        Collections.shuffle(allDeps, random);
+        gavtcs = allDeps.toArray(new Gavtcs[0]);
+
+        virtualDeps = allDeps.stream()
+                .map(Gavtcs::toVirtual)
+                .collect(Collectors.toSet());
+        /* Half of the virtual dependencies are present already, the rest needs to get added */
+        final List<Gavtcs> presentVirtualDeps = allDeps.stream()
+                .filter(dep -> random.nextBoolean())
+                .map(Gavtcs::toVirtual)
+                .collect(Collectors.toList());
+
+        final StringBuilder sb = new StringBuilder(size * 512)
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n")
+                .append("    <modelVersion>4.0.0</modelVersion>\n")
+                .append("    <groupId>org.acme</groupId>\n")
+                .append("    <artifactId>synthetic</artifactId>\n")
+                .append("    <version>0.1-SNAPSHOT</version>\n")
+                .append("    <packaging>pom</packaging>\n")
+                .append("\n")
+                .append("    <modules>\n")
+                .append("        <!-- extensions a..z; do not remove this comment -->\n");
+        for (Gavtcs dep : allDeps) {
+            sb.append("        <module>").append(dep.getArtifactId()).append("</module>\n");
+        }
+        sb.append("    </modules>\n")
+                .append("\n")
+                .append("    <dependencyManagement>\n")
+                .append("        <dependencies>\n")
+                .append("            <!-- Dependencies a..z; do not remove this comment -->\n");
+        for (Gavtcs dep : allDeps) {
+            sb.append("            <dependency>\n")
+                    .append("                <groupId>").append(dep.getGroupId()).append("</groupId>\n")
+                    .append("                <artifactId>").append(dep.getArtifactId()).append("</artifactId>\n")
+                    .append("                <version>").append(dep.getVersion()).append("</version>\n")
+                    .append("            </dependency>\n");
+        }
+        sb.append("        </dependencies>\n")
+                .append("    </dependencyManagement>\n")
+                .append("\n")
+                .append("    <dependencies>\n");
+        for (Gavtcs dep : presentVirtualDeps) {
+            sb.append("        <dependency>\n")
+                    .append("            <groupId>").append(dep.getGroupId()).append("</groupId>\n")
+                    .append("            <artifactId>").append(dep.getArtifactId()).append("</artifactId>\n")
+                    .append("            <version>").append(dep.getVersion()).append("</version>\n")
+                    .append("            <type>pom</type>\n")
+                    .append("            <scope>test</scope>\n")
+                    .append("            <exclusions>\n")
+                    .append("                <exclusion>\n")
+                    .append("                    <groupId>*</groupId>\n")
+                    .append("                    <artifactId>*</artifactId>\n")
+                    .append("                </exclusion>\n")
+                    .append("            </exclusions>\n")
+                    .append("        </dependency>\n");
+        }
+        sb.append("    </dependencies>\n")
+                .append("</project>\n");
+        pom = sb.toString();
+    }
+
+    /**
+     * A no-op transformation, i.e. parse, serialize and postprocess.
+     *
+     * @param blackhole the JMH {@link Blackhole}
+     */
+    @Benchmark
+    public void roundTrip(Blackhole blackhole) {
+        PomTransformer.transform(Collections.emptyList(), POM_XML_PATH, () -> pom, blackhole::consume);
+    }
+
+    /**
+     * A no-op transformation using {@link Engine#LOSSLESS}. Compare with {@link #roundTrip(Blackhole)}.
+     *
+     * @param blackhole the JMH {@link Blackhole}
+     */
+    @Benchmark
+    public void roundTripLossless(Blackhole blackhole) {
+        PomTransformer.transform(Collections.emptyList(), POM_XML_PATH, () -> pom, Engine.LOSSLESS, blackhole::consume);
+    }
+
+    @Benchmark
+    public String sortDependencyManagementText() {
+        return PomSorter.sortDependencyManagement(pom, POM_XML_PATH);
+    }
+
+    @Benchmark
+    public String sortModulesText() {
+        return PomSorter.sortModules(pom, POM_XML_PATH);
+    }
+
+    @Benchmark
+    public void sortDependencyManagementDom(Blackhole blackhole) {
+        PomTransformer.transform(Collections.singletonList(Transformation.sortDependencyManagement()), POM_XML_PATH,
+                () -> pom, blackhole::consume);
+    }
+
+    @Benchmark
+    public void sortModulesDom(Blackhole blackhole) {
+        PomTransformer.transform(Collections.singletonList(Transformation.sortModules()), POM_XML_PATH,
+                () -> pom, blackhole::consume);
+    }
+
+    /**
+     * The transformation {@code cq:format} applies to the {@code pom.xml} listed in
+     * {@code updateVirtualDependenciesAllExtensions}.
+     *
+     * @param blackhole the JMH {@link Blackhole}
+     */
+    @Benchmark
+    public void updateDependencySubset(Blackhole blackhole) {
+        updateDependencySubset(Engine.DOM, blackhole);
+    }
+
+    /**
+     * {@link #updateDependencySubset(Blackhole)} using {@link Engine#LOSSLESS}.
+     *
+     * @param blackhole the JMH {@link Blackhole}
+     */
+    @Benchmark
+    public void updateDependencySubsetLossless(Blackhole blackhole) {
+        updateDependencySubset(Engine.LOSSLESS, blackhole);
+    }
+
+    void updateDependencySubset(Engine engine, Blackhole blackhole) {
+        PomTransformer.transform(
+                Collections.singletonList(Transformation.updateDependencySubset(
+                        Gavtcs::isVirtual,
+                        virtualDeps,
+                        Gavtcs.scopeAndTypeFirstComparator(),
+                        "The following dependencies guarantee that this module is built after them.")),
+                POM_XML_PATH,
+                () -> pom,
+                engine,
+                blackhole::consume);
+    }
+
+    @Benchmark
+    public Gavtcs[] sortGroupFirst() {
+        final Gavtcs[] result = gavtcs.clone();
+        Arrays.sort(result, Gavtcs.groupFirstComparator());
+        return result;
+    }
+
+    @Benchmark
+    public Gavtcs[] sortScopeAndTypeFirst() {
+        final Gavtcs[] result = gavtcs.clone();
+        Arrays.sort(result, Gavtcs.scopeAndTypeFirstComparator());
+        return result;
+    }
+
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.xpath.XPathFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the per-POM cost of a {@link PomTransformer} round trip over the {@code pom.xml} files available under
+ * {@code src/test/resources/projects}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PomTransformerBenchmark {
+
+    private Map<Path, String> poms;
+
+    @Setup
+    public void setup() throws IOException {
+        try (Stream<Path> files = Files.walk(Paths.get("src/test/resources/projects"))) {
+            poms = files
+                    .filter(p -> p.getFileName().toString().equals("pom.xml"))
+                    .sorted()
+                    .collect(Collectors.toMap(p -> p, p -> {
+                        try {
+                            return new String(Files.readAllBytes(p), StandardCharsets.UTF_8);
+                        } catch (IOException e) {
+                            throw new RuntimeException("Could not read " + p, e);
+                        }
+                    }, (a, b) -> a, LinkedHashMap::new));
+        }
+        if (poms.isEmpty()) {
+            throw new IllegalStateException("No pom.xml files found; run the benchmarks from the project root directory");
+        }
+    }
+
+    /**
+     * A no-op transformation of all test POMs, i.e. parse, serialize and postprocess.
+     *
+     * @param blackhole the JMH {@link Blackhole}
+     */
+    @Benchmark
+    public void roundTrip(Blackhole blackhole) {
+        for (Entry<Path, String> pom : poms.entrySet()) {
+            final String src = pom.getValue();
+            PomTransformer.transform(Collections.emptyList(), pom.getKey(), () -> src, blackhole::consume);
+        }
+    }
+
+    /**
+     * The per POM overhead {@link PomTransformer} used to have before the XML factories were cached per thread: two
+     * {@code Transformer}s and one {@code XPath} created through fresh factories. Compare with {@link #roundTrip(Blackhole)}.
+     *
+     * @param blackhole the JMH {@link Blackhole}
+     * @throws TransformerConfigurationException if the {@code Transformer} cannot be created
+     */
+    @Benchmark
+    public void factoryLookup(Blackhole blackhole) throws TransformerConfigurationException {
+        for (int i = 0; i < poms.size(); i++) {
+            blackhole.consume(TransformerFactory.newInstance().newTransformer());
+            blackhole.consume(TransformerFactory.newInstance().newTransformer());
+            blackhole.consume(XPathFactory.newInstance().newXPath());
+        }
+    }
+
+}
@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.stream.Collectors;
+
+import org.apache.camel.catalog.Kind;
+import org.apache.camel.tooling.model.ArtifactModel;
+import org.apache.camel.tooling.model.BaseModel;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * The differences between two versions of a {@link CqCatalog}. Both catalogs are indexed by model name once and all
+ * differences are computed by lookups in those indexes, so that diffing many releases stays cheap.
+ */
+public class CatalogDiff {
+
+    private final String baselineVersion;
+    private final String reportVersion;
+    private final Map<Kind, KindDiff> kinds;
+
+    CatalogDiff(String baselineVersion, String reportVersion, Map<Kind, KindDiff> kinds) {
+        this.baselineVersion = baselineVersion;
+        this.reportVersion = reportVersion;
+        this.kinds = kinds;
+    }
+
+    /**
+     * @param baselineVersion the version of the {@code baseline} catalog
+     * @param baseline the older catalog
+     * @param reportVersion the version of the {@code report} catalog
+     * @param report the newer catalog
+     * @return a new {@link CatalogDiff}
+     */
+    public static CatalogDiff compute(String baselineVersion, CqCatalog baseline, String reportVersion,
+            CqCatalog report) {
+        final Map<Kind, KindDiff> kinds = new LinkedHashMap<>();
+        CqCatalog.kinds().forEach(kind -> kinds.put(kind, KindDiff.compute(byName(baseline, kind), byName(report, kind))));
+        return new CatalogDiff(baselineVersion, reportVersion, Collections.unmodifiableMap(kinds));
+    }
+
+    static Map<String, ArtifactModel<?>> byName(CqCatalog catalog, Kind kind) {
+        return catalog.models(kind)
+                .collect(Collectors.toMap(ArtifactModel::getName, m -> m, (m1, m2) -> m1, LinkedHashMap::new));
+    }
+
+    public String getBaselineVersion() {
+        return baselineVersion;
+    }
+
+    public String getReportVersion() {
+        return reportVersion;
+    }
+
+    /**
+     * @param kind the {@link Kind} to return the differences for
+     * @return the {@link KindDiff} for the given {@code kind}
+     */
+    public KindDiff getKindDiff(Kind kind) {
+        final KindDiff result = kinds.get(kind);
+        if (result == null) {
+            throw new IllegalStateException("No diff for kind " + kind);
+        }
+        return result;
+    }
+
+    /**
+     * Appends the number of added models per kind, e.g. {@code • 3 new components}.
+     *
+     * @param counts where to append
+     * @return the given {@code counts}
+     */
+    public StringBuilder appendCounts(StringBuilder counts) {
+        for (Entry<Kind, KindDiff> e : kinds.entrySet()) {
+            final int cnt = e.getValue().added.size();
+            if (cnt > 0) {
+                counts.append("• ").append(cnt).append(" new ").append(e.getKey().name()).append("s\n");
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Appends the titles of the added models and of the models that became native per kind, sorted by title.
+     *
+     * @param details where to append
+     * @return the given {@code details}
+     */
+    public StringBuilder appendDetails(StringBuilder details) {
+        for (Entry<Kind, KindDiff> e : kinds.entrySet()) {
+            final KindDiff diff = e.getValue();
+            if (diff.added.isEmpty() && diff.nativePromoted.isEmpty()) {
+                continue;
+            }
+            details.append(CqUtils.toCapCamelCase(e.getKey().name() + "s")).append(":\n");
+            final List<ArtifactModel<?>> models = new ArrayList<>(diff.added.size() + diff.nativePromoted.size());
+            models.addAll(diff.added);
+            models.addAll(diff.nativePromoted);
+            models.sort(BaseModel.compareTitle());
+            for (ArtifactModel<?> model : models) {
+                details.append("• ").append(model.getTitle());
+                if (diff.nativePromoted.contains(model)) {
+                    details.append(" +native");
+                } else if (!model.isNativeSupported()) {
+                    details.append(" (JVM only)");
+                }
+                details.append('\n');
+            }
+        }
+        return details;
+    }
+
+    /**
+     * @return a JSON representation of this {@link CatalogDiff}
+     */
+    public JsonObject toJson() {
+        final JsonObject result = new JsonObject();
+        result.addProperty("baselineVersion", baselineVersion);
+        result.addProperty("reportVersion", reportVersion);
+        for (Entry<Kind, KindDiff> e : kinds.entrySet()) {
+            result.add(e.getKey().name() + "s", e.getValue().toJson());
+        }
+        return result;
+    }
+
+    /**
+     * The differences between the models of a single {@link Kind}. All lists are in the order of the newer catalog
+     * except for {@link #getRemoved()} that is in the order of the older catalog.
+     */
+    public static class KindDiff {
+        private final List<ArtifactModel<?>> added;
+        private final List<ArtifactModel<?>> removed;
+        private final List<ArtifactModel<?>> nativePromoted;
+        private final List<ArtifactModel<?>> deprecated;
+
+        KindDiff(List<ArtifactModel<?>> added, List<ArtifactModel<?>> removed, List<ArtifactModel<?>> nativePromoted,
+                List<ArtifactModel<?>> deprecated) {
+            this.added = Collections.unmodifiableList(added);
+            this.removed = Collections.unmodifiableList(removed);
+            this.nativePromoted = Collections.unmodifiableList(nativePromoted);
+            this.deprecated = Collections.unmodifiableList(deprecated);
+        }
+
+        static KindDiff compute(Map<String, ArtifactModel<?>> baseline, Map<String, ArtifactModel<?>> report) {
+            final List<ArtifactModel<?>> added = new ArrayList<>();
+            final List<ArtifactModel<?>> nativePromoted = new ArrayList<>();
+            final List<ArtifactModel<?>> deprecated = new ArrayList<>();
+            for (ArtifactModel<?> model : report.values()) {
+                final ArtifactModel<?> baselineModel = baseline.get(model.getName());
+                if (baselineModel == null) {
+                    added.add(model);
+                } else {
+                    if (model.isNativeSupported() && !baselineModel.isNativeSupported()) {
+                        nativePromoted.add(model);
+                    }
+                    if (model.isDeprecated() && !baselineModel.isDeprecated()) {
+                        deprecated.add(model);
+                    }
+                }
+            }
+            final List<ArtifactModel<?>> removed = new ArrayList<>();
+            for (ArtifactModel<?> model : baseline.values()) {
+                if (!report.containsKey(model.getName())) {
+                    removed.add(model);
+                }
+            }
+            return new KindDiff(added, removed, nativePromoted, deprecated);
+        }
+
+        /**
+         * @return the models available in the newer catalog but not in the older one
+         */
+        public List<ArtifactModel<?>> getAdded() {
+            return added;
+        }
+
+        /**
+         * @return the models available in the older catalog but not in the newer one
+         */
+        public List<ArtifactModel<?>> getRemoved() {
+            return removed;
+        }
+
+        /**
+         * @return the models supported in native mode in the newer catalog but only in JVM mode in the older one
+         */
+        public List<ArtifactModel<?>> getNativePromoted() {
+            return nativePromoted;
+        }
+
+        /**
+         * @return the models deprecated in the newer catalog but not in the older one
+         */
+        public List<ArtifactModel<?>> getDeprecated() {
+            return deprecated;
+        }
+
+        JsonObject toJson() {
+            final JsonObject result = new JsonObject();
+            result.add("added", toJson(added));
+            result.add("removed", toJson(removed));
+            result.add("nativePromoted", toJson(nativePromoted));
+            result.add("deprecated", toJson(deprecated));
+            return result;
+        }
+
+        static JsonArray toJson(List<ArtifactModel<?>> models) {
+            final JsonArray result = new JsonArray();
+            for (ArtifactModel<?> model : models) {
+                final JsonObject m = new JsonObject();
+                m.addProperty("name", model.getName());
+                m.addProperty("title", model.getTitle());
+                m.addProperty("artifactId", model.getArtifactId());
+                m.addProperty("firstVersion", model.getFirstVersion());
+                m.addProperty("nativeSupported", model.isNativeSupported());
+                m.addProperty("deprecated", model.isDeprecated());
+                result.add(m);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.camel.catalog.Kind;
+import org.apache.camel.tooling.model.ArtifactModel;
+import org.apache.camel.tooling.model.ComponentModel;
+import org.apache.camel.tooling.model.DataFormatModel;
+import org.apache.camel.tooling.model.LanguageModel;
+import org.apache.camel.tooling.model.OtherModel;
+
+/**
+ * A compact binary snapshot of the catalog models used by {@link CqCatalog} to avoid parsing thousands of JSON
+ * schemas on every run. Only the fields this plugin actually uses are stored: name, kind, artifactId, title,
+ * description, label, deprecated, nativeSupported, firstVersion and alternativeSchemes.
+ * <p>
+ * The file starts with a magic number, a format version and a stamp identifying the source of the models (such as
+ * the catalog version or the size and modification time of the catalog jar). A snapshot whose stamp does not match
+ * the expected one is ignored. The stamp is followed by a table of all distinct strings and by the models referring
+ * to the strings by their index in the table.
+ */
+public class CatalogSnapshot {
+    static final int MAGIC = 0x43514353; // CQCS
+    static final int FORMAT_VERSION = 1;
+    static final String FILE_SUFFIX = "-cq-catalog-snapshot.bin";
+
+    private static final int NULL_STRING = -1;
+    private static final int DEPRECATED = 1;
+    private static final int NATIVE_SUPPORTED = 2;
+
+    private CatalogSnapshot() {
+    }
+
+    /**
+     * @param localRepository the local Maven repository
+     * @param groupId the groupId of the catalog artifact
+     * @param artifactId the artifactId of the catalog artifact
+     * @param version the version of the catalog artifact
+     * @return the path of the snapshot file stored next to the catalog artifact in the {@code localRepository}
+     */
+    public static Path path(Path localRepository, String groupId, String artifactId, String version) {
+        return localRepository.resolve(groupId.replace('.', '/') + "/" + artifactId + "/" + version + "/" + artifactId
+                + "-" + version + FILE_SUFFIX);
+    }
+
+    /**
+     * Reads the models stored in the given {@code file} via memory mapping.
+     *
+     * @param file the snapshot file to read
+     * @param stamp the expected stamp
+     * @return the models by kind or {@code null} if the {@code file} does not exist, has a different stamp or format
+     *         version or is corrupted
+     */
+    public static Map<Kind, List<ArtifactModel<?>>> read(Path file, String stamp) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), stamp);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + file, e);
+        }
+    }
+
+    /**
+     * Stores the given {@code models} in the given {@code file} atomically. Failures are ignored because the snapshot
+     * is a mere cache; e.g. on Windows, a file that is still memory mapped cannot be replaced.
+     *
+     * @param file the snapshot file to write
+     * @param stamp the stamp identifying the source of the {@code models}
+     * @param models the models to store
+     * @return {@code true} if the {@code file} was written; {@code false} otherwise
+     */
+    public static boolean write(Path file, String stamp, Map<Kind, List<ArtifactModel<?>>> models) {
+        try {
+            Files.createDirectories(file.getParent());
+            CqUtils.write(file, encode(stamp, models), true);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    static byte[] encode(String stamp, Map<Kind, List<ArtifactModel<?>>> models) {
+        final Map<String, Integer> stringIndex = new LinkedHashMap<>();
+        final ByteArrayOutputStream modelBytes = new ByteArrayOutputStream();
+        try {
+            final DataOutputStream out = new DataOutputStream(modelBytes);
+            out.writeInt(models.size());
+            for (Entry<Kind, List<ArtifactModel<?>>> e : models.entrySet()) {
+                out.writeInt(stringIndex(stringIndex, e.getKey().name()));
+                out.writeInt(e.getValue().size());
+                for (ArtifactModel<?> model : e.getValue()) {
+                    out.writeInt(stringIndex(stringIndex, model.getName()));
+                    out.writeInt(stringIndex(stringIndex, model.getArtifactId()));
+                    out.writeInt(stringIndex(stringIndex, model.getTitle()));
+                    out.writeInt(stringIndex(stringIndex, model.getDescription()));
+                    out.writeInt(stringIndex(stringIndex, model.getLabel()));
+                    out.writeInt(stringIndex(stringIndex, model.getFirstVersion()));
+                    out.writeInt(stringIndex(stringIndex,
+                            model instanceof ComponentModel ? ((ComponentModel) model).getAlternativeSchemes() : null));
+                    out.writeByte((model.isDeprecated() ? DEPRECATED : 0)
+                            | (model.isNativeSupported() ? NATIVE_SUPPORTED : 0));
+                }
+            }
+            out.flush();
+
+            final ByteArrayOutputStream result = new ByteArrayOutputStream(modelBytes.size() * 2);
+            final DataOutputStream resultOut = new DataOutputStream(result);
+            resultOut.writeInt(MAGIC);
+            resultOut.writeInt(FORMAT_VERSION);
+            writeString(resultOut, stamp);
+            resultOut.writeInt(stringIndex.size());
+            for (String s : stringIndex.keySet()) {
+                writeString(resultOut, s);
+            }
+            modelBytes.writeTo(resultOut);
+            resultOut.flush();
+            return result.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not encode catalog snapshot", e);
+        }
+    }
+
+    static Map<Kind, List<ArtifactModel<?>>> decode(ByteBuffer buffer, String stamp) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION || !stamp.equals(readString(buffer))) {
+                return null;
+            }
+            final String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(buffer);
+            }
+            final int kindCount = buffer.getInt();
+            final Map<Kind, List<ArtifactModel<?>>> result = new LinkedHashMap<>();
+            for (int i = 0; i < kindCount; i++) {
+                final Kind kind = Kind.valueOf(strings[buffer.getInt()]);
+                final int modelCount = buffer.getInt();
+                final List<ArtifactModel<?>> models = new ArrayList<>(modelCount);
+                for (int j = 0; j < modelCount; j++) {
+                    final ArtifactModel<?> model = newModel(kind);
+                    model.setName(string(strings, buffer.getInt()));
+                    model.setArtifactId(string(strings, buffer.getInt()));
+                    model.setTitle(string(strings, buffer.getInt()));
+                    model.setDescription(string(strings, buffer.getInt()));
+                    model.setLabel(string(strings, buffer.getInt()));
+                    model.setFirstVersion(string(strings, buffer.getInt()));
+                    final String alternativeSchemes = string(strings, buffer.getInt());
+                    if (model instanceof ComponentModel) {
+                        ((ComponentModel) model).setAlternativeSchemes(alternativeSchemes);
+                    }
+                    final byte flags = buffer.get();
+                    model.setDeprecated((flags & DEPRECATED) != 0);
+                    model.setNativeSupported((flags & NATIVE_SUPPORTED) != 0);
+                    models.add(model);
+                }
+                result.put(kind, models);
+            }
+            return buffer.hasRemaining() ? null : result;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            /* corrupted; will be rewritten */
+            return null;
+        }
+    }
+
+    static ArtifactModel<?> newModel(Kind kind) {
+        switch (kind) {
+        case component:
+            return new ComponentModel();
+        case dataformat:
+            return new DataFormatModel();
+        case language:
+            return new LanguageModel();
+        case other:
+            return new OtherModel();
+        default:
+            throw new IllegalArgumentException("Unexpected kind " + kind);
+        }
+    }
+
+    static int stringIndex(Map<String, Integer> stringIndex, String s) {
+        if (s == null) {
+            return NULL_STRING;
+        }
+        Integer result = stringIndex.get(s);
+        if (result == null) {
+            result = stringIndex.size();
+            stringIndex.put(s, result);
+        }
+        return result;
+    }
+
+    static String string(String[] strings, int index) {
+        return index == NULL_STRING ? null : strings[index];
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        final String result;
+        if (buffer.hasArray()) {
+            result = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            final byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            result = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+
+}
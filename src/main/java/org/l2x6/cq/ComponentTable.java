@@ -0,0 +1,283 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * The rows exported by {@link ExportComponentCsvMojo} for a single kind together with the writers for the
+ * supported {@link Format}s.
+ */
+public class ComponentTable {
+
+    /** The names of the columns in the order in which they are stored in the rows */
+    public static final List<String> COLUMNS = Collections.unmodifiableList(Arrays.asList("title", "scheme",
+            "artifactId", "kind", "deprecated", "label", "group", "cqCommunity"));
+    static final int DEPRECATED_COLUMN = COLUMNS.indexOf("deprecated");
+
+    private static final String CSV_HEADER = "Priority\tName\tScheme\tartifactId\tKind\tDeprecated\tLabel\tGroup\tCQ community\tProduct\tCommunity issue\tIntegration test\tSprint\tComment\n";
+
+    /**
+     * The output formats.
+     */
+    public enum Format {
+        /** Tab separated values with the columns expected by the spreadsheet the list is pasted to */
+        csv(".csv"),
+        /** One JSON object per line */
+        jsonl(".jsonl"),
+        /** A binary columnar format with dictionary-encoded strings; see {@link ComponentTable#writeColumnar(Path)} */
+        columnar(".cqcol");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format of(String format) {
+            try {
+                return valueOf(format.trim().toLowerCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                        "Unsupported format '" + format + "'; expected one of " + Arrays.toString(values()), e);
+            }
+        }
+    }
+
+    static final int COLUMNAR_MAGIC = 0x4351434c; // CQCL
+    static final int COLUMNAR_FORMAT_VERSION = 1;
+
+    private final List<String[]> rows;
+
+    /**
+     * @param rows the rows, each having a value for each one of the {@link #COLUMNS}; {@code null} values are allowed
+     */
+    public ComponentTable(List<String[]> rows) {
+        this.rows = rows;
+    }
+
+    public List<String[]> getRows() {
+        return rows;
+    }
+
+    /**
+     * Writes this {@link ComponentTable} to the given {@code file} in the given {@code format}.
+     *
+     * @param format the {@link Format} to use
+     * @param file the file to write
+     */
+    public void write(Format format, Path file) {
+        switch (format) {
+        case csv:
+            writeCsv(file);
+            break;
+        case jsonl:
+            writeJsonLines(file);
+            break;
+        case columnar:
+            writeColumnar(file);
+            break;
+        default:
+            throw new IllegalStateException("Unexpected format " + format);
+        }
+    }
+
+    void writeCsv(Path file) {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(CSV_HEADER);
+            /* One buffer reused for all rows so that there is a single write() per row */
+            final StringBuilder row = new StringBuilder(256);
+            for (String[] values : rows) {
+                row.setLength(0);
+                /* The leading tab leaves the Priority column empty */
+                for (String value : values) {
+                    row.append('\t');
+                    if (value != null) {
+                        row.append(value);
+                    }
+                }
+                row.append('\n');
+                out.append(row);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write to " + file, e);
+        }
+    }
+
+    void writeJsonLines(Path file) {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (String[] values : rows) {
+                final JsonWriter json = new JsonWriter(out);
+                json.beginObject();
+                for (int i = 0; i < values.length; i++) {
+                    json.name(COLUMNS.get(i));
+                    if (i == DEPRECATED_COLUMN) {
+                        json.value(Boolean.parseBoolean(values[i]));
+                    } else {
+                        json.value(values[i]);
+                    }
+                }
+                json.endObject();
+                json.flush();
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write to " + file, e);
+        }
+    }
+
+    /**
+     * Writes this {@link ComponentTable} in a columnar binary format where each distinct string is stored only once.
+     * All integers except for the header and the footer are unsigned LEB128 varints. The layout is as follows:
+     *
+     * <pre>
+     * int     magic 0x4351434c ("CQCL")
+     * int     format version
+     * varint  row count
+     * varint  column count
+     * for each column:
+     *     varint  dictionary index of the column name
+     *     varint  dictionary index + 1 of the value of each row; 0 stands for null
+     * varint  dictionary size
+     * for each dictionary entry:
+     *     varint  length in bytes
+     *     bytes   UTF-8 encoded string
+     * int     offset of the dictionary from the beginning of the file
+     * </pre>
+     *
+     * The columns are written as soon as they are encoded and the dictionary follows them, so that the file can be
+     * written in a single pass; readers locate the dictionary via the trailing offset.
+     *
+     * @param file the file to write
+     */
+    void writeColumnar(Path file) {
+        final Map<String, Integer> dictionary = new LinkedHashMap<>();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(COLUMNAR_MAGIC);
+            out.writeInt(COLUMNAR_FORMAT_VERSION);
+            writeVarInt(out, rows.size());
+            writeVarInt(out, COLUMNS.size());
+            for (int c = 0; c < COLUMNS.size(); c++) {
+                writeVarInt(out, dictionaryIndex(dictionary, COLUMNS.get(c)));
+                for (String[] row : rows) {
+                    final String value = row[c];
+                    writeVarInt(out, value == null ? 0 : dictionaryIndex(dictionary, value) + 1);
+                }
+            }
+            final int dictionaryOffset = out.size();
+            writeVarInt(out, dictionary.size());
+            for (String s : dictionary.keySet()) {
+                final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(out, bytes.length);
+                out.write(bytes);
+            }
+            out.writeInt(dictionaryOffset);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write to " + file, e);
+        }
+    }
+
+    /**
+     * Reads a file written by {@link #writeColumnar(Path)}.
+     *
+     * @param file the file to read
+     * @return a {@link Map} from column names to column values
+     */
+    static Map<String, List<String>> readColumnar(Path file) {
+        final ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + file, e);
+        }
+        if (buffer.getInt() != COLUMNAR_MAGIC || buffer.getInt() != COLUMNAR_FORMAT_VERSION) {
+            throw new IllegalStateException("Unexpected magic or format version in " + file);
+        }
+        final int columnsPosition = buffer.position();
+        buffer.position(buffer.getInt(buffer.limit() - 4));
+        final String[] dictionary = new String[readVarInt(buffer)];
+        for (int i = 0; i < dictionary.length; i++) {
+            final byte[] bytes = new byte[readVarInt(buffer)];
+            buffer.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(columnsPosition);
+        final int rowCount = readVarInt(buffer);
+        final int columnCount = readVarInt(buffer);
+        final Map<String, List<String>> result = new LinkedHashMap<>();
+        for (int c = 0; c < columnCount; c++) {
+            final String name = dictionary[readVarInt(buffer)];
+            final List<String> values = new ArrayList<>(rowCount);
+            for (int r = 0; r < rowCount; r++) {
+                final int index = readVarInt(buffer);
+                values.add(index == 0 ? null : dictionary[index - 1]);
+            }
+            result.put(name, values);
+        }
+        return result;
+    }
+
+    static int dictionaryIndex(Map<String, Integer> dictionary, String s) {
+        Integer result = dictionary.get(s);
+        if (result == null) {
+            result = dictionary.size();
+            dictionary.put(s, result);
+        }
+        return result;
+    }
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            result |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+}
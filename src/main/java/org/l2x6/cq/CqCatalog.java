@@ -22,12 +22,20 @@ import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.apache.camel.catalog.CamelCatalog;
@@ -41,6 +49,8 @@ import org.apache.camel.tooling.model.BaseModel;
 import org.apache.camel.tooling.model.ComponentModel;
 
 public class CqCatalog {
+    /** The upper bound of the number of threads used for loading the models */
+    static final int LOAD_THREADS = Math.min(Runtime.getRuntime().availableProcessors(), 8);
 
     public enum Flavor {
         camel("org.apache.camel", "camel-catalog") {
@@ -76,24 +86,87 @@ public class CqCatalog {
     }
 
     private final DefaultCamelCatalog catalog;
+    /** Creates instances equivalent to {@link #catalog} for loading the models in parallel */
+    private final Supplier<DefaultCamelCatalog> catalogFactory;
     protected final Path baseDir;
     private Flavor flavor;
+    /** The {@link CatalogSnapshot} file to use or {@code null} */
+    private final Path snapshotFile;
+    /** The expected {@link CatalogSnapshot} stamp; never {@code null} if {@link #snapshotFile} is not {@code null} */
+    private final String snapshotStamp;
+    /** Built lazily by {@link #index()} */
+    private volatile Index index;
 
     public CqCatalog(Path baseDir, Flavor flavor) {
+        this(baseDir, flavor, null, null);
+    }
+
+    CqCatalog(Path baseDir, Flavor flavor, Path snapshotFile, String snapshotStamp) {
         super();
         this.baseDir = baseDir;
         this.flavor = flavor;
-        final DefaultCamelCatalog c = new DefaultCamelCatalog(true);
-        c.setRuntimeProvider(flavor.createRuntimeProvider(c));
-        c.setVersionManager(new CqVersionManager(c, baseDir));
-        this.catalog = c;
+        this.catalogFactory = () -> {
+            final DefaultCamelCatalog c = new DefaultCamelCatalog(true);
+            c.setRuntimeProvider(flavor.createRuntimeProvider(c));
+            c.setVersionManager(new CqVersionManager(c, baseDir));
+            return c;
+        };
+        this.catalog = catalogFactory.get();
+        this.snapshotFile = snapshotFile;
+        this.snapshotStamp = snapshotStamp;
     }
 
     public CqCatalog(Flavor flavor) {
         super();
         this.flavor = flavor;
         this.baseDir = null;
-        this.catalog = new DefaultCamelCatalog(true);
+        this.catalogFactory = () -> new DefaultCamelCatalog(true);
+        this.catalog = catalogFactory.get();
+        this.snapshotFile = null;
+        this.snapshotStamp = null;
+    }
+
+    /**
+     * A catalog available in class path that stores a {@link CatalogSnapshot} of its models next to the catalog
+     * artifact in the given {@code localRepository} and reuses it on subsequent runs. The snapshot is shared with
+     * {@link GavCqCatalog#open(Path, Flavor, String)} for the same version, hence both use the same
+     * {@link #snapshotStamp(Path, String)}. Catalogs with a {@code -SNAPSHOT} version are never snapshotted, because
+     * the jar in class path need not be the one in the {@code localRepository}.
+     *
+     * @param flavor the {@link Flavor} of the catalog
+     * @param localRepository the local Maven repository; {@code null} disables the snapshot
+     */
+    public CqCatalog(Flavor flavor, Path localRepository) {
+        super();
+        this.flavor = flavor;
+        this.baseDir = null;
+        this.catalogFactory = () -> new DefaultCamelCatalog(true);
+        this.catalog = catalogFactory.get();
+        final String version = catalog.getCatalogVersion();
+        if (localRepository != null && version != null && !version.endsWith("-SNAPSHOT")) {
+            this.snapshotFile = CatalogSnapshot.path(localRepository, flavor.getGroupId(), flavor.getArtifactId(),
+                    version);
+            this.snapshotStamp = snapshotStamp(
+                    CqUtils.artifactPath(localRepository, flavor.getGroupId(), flavor.getArtifactId(), version, "jar"),
+                    version);
+        } else {
+            this.snapshotFile = null;
+            this.snapshotStamp = null;
+        }
+    }
+
+    /**
+     * @param localJarPath the path of the catalog jar in the local Maven repository
+     * @param version the version of the catalog
+     * @return the size and the last modification time of the {@code localJarPath} if it exists; otherwise the
+     *         {@code version} unless it is a {@code -SNAPSHOT}; otherwise {@code null}
+     */
+    static String snapshotStamp(Path localJarPath, String version) {
+        try {
+            return version + ":" + Files.size(localJarPath) + ":" + Files.getLastModifiedTime(localJarPath).toMillis();
+        } catch (IOException e) {
+            return version.endsWith("-SNAPSHOT") ? null : version;
+        }
     }
 
     public List<String> toCamelArtifactIdBase(String cqArtifactIdBase) {
@@ -107,9 +180,13 @@ public class CqCatalog {
     }
 
     public Stream<ArtifactModel<?>> filterModels(String cqArtifactIdBase) {
-        List<String> camelArtifactIds = toCamelArtifactIdBase(cqArtifactIdBase);
-        return models()
-                .filter(model -> camelArtifactIds.contains(model.getArtifactId()));
+        final List<String> camelArtifactIds = toCamelArtifactIdBase(cqArtifactIdBase);
+        final Index index = index();
+        /* Keep the order of models() */
+        return camelArtifactIds.stream()
+                .flatMapToInt(artifactId -> index.positions(artifactId))
+                .sorted()
+                .mapToObj(index.models::get);
     }
 
     public List<ArtifactModel<?>> primaryModel(String cqArtifactIdBase) {
@@ -129,15 +206,96 @@ public class CqCatalog {
         return models;
     }
 
+    /**
+     * @return all models of all {@link #kinds()}; if this catalog was read from a {@link CatalogSnapshot}, the models
+     *         have only the fields stored in the snapshot set; use {@link #load(org.apache.camel.catalog.Kind, String)}
+     *         to get a complete model
+     */
     public Stream<ArtifactModel<?>> models() {
-        return kinds()
-                .flatMap(kind -> models(kind));
+        return index().models.stream();
     }
 
+    /**
+     * @param kind the {@link org.apache.camel.catalog.Kind} of models to return
+     * @return all models of the given {@code kind}; if this catalog was read from a {@link CatalogSnapshot}, the
+     *         models have only the fields stored in the snapshot set; use
+     *         {@link #load(org.apache.camel.catalog.Kind, String)} to get a complete model
+     */
     public Stream<ArtifactModel<?>> models(org.apache.camel.catalog.Kind kind) {
+        final Map<String, ArtifactModel<?>> models = index().byKindAndName.get(kind);
+        if (models == null) {
+            /* A kind not covered by kinds() */
+            return loadModels(kind);
+        }
+        return models.values().stream();
+    }
+
+    Stream<ArtifactModel<?>> loadModels(org.apache.camel.catalog.Kind kind) {
         return catalog.findNames(kind).stream().map(name -> (ArtifactModel<?>) catalog.model(kind, name));
     }
 
+    /**
+     * @return the {@link Index} of all models of all {@link #kinds()}, reading them from the {@link CatalogSnapshot}
+     *         or parsing all JSON schemas from the underlying catalog on the first invocation
+     */
+    Index index() {
+        return index(LOAD_THREADS);
+    }
+
+    /**
+     * @param loadThreads the number of threads to use for parsing the JSON schemas if they need to be parsed
+     * @return the {@link Index} of all models of all {@link #kinds()}, see {@link #index()}
+     */
+    Index index(int loadThreads) {
+        Index result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    Map<org.apache.camel.catalog.Kind, List<ArtifactModel<?>>> models = snapshotFile != null
+                            ? CatalogSnapshot.read(snapshotFile, snapshotStamp)
+                            : null;
+                    final boolean complete = models == null;
+                    if (complete) {
+                        models = loadAllModels(loadThreads);
+                        if (snapshotFile != null) {
+                            CatalogSnapshot.write(snapshotFile, snapshotStamp, models);
+                        }
+                    }
+                    index = result = new Index(models, complete);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parsing the JSON schemas is the dominant cost here, so we do it in parallel. {@link DefaultCamelCatalog} is not
+     * thread safe, hence each thread gets its own instance.
+     *
+     * @param threads the number of threads to use
+     * @return all models of all {@link #kinds()} in the order of {@link #kinds()} and then in the order of the names
+     *         in the catalog
+     */
+    Map<org.apache.camel.catalog.Kind, List<ArtifactModel<?>>> loadAllModels(int threads) {
+        final List<Entry<org.apache.camel.catalog.Kind, String>> kindNames = kinds()
+                .flatMap(kind -> catalog.findNames(kind).stream()
+                        .map(name -> new SimpleImmutableEntry<>(kind, name)))
+                .collect(Collectors.toList());
+        final Thread callerThread = Thread.currentThread();
+        final ThreadLocal<DefaultCamelCatalog> catalogs = ThreadLocal.withInitial(catalogFactory);
+        final List<ArtifactModel<?>> models = CqUtils.mapParallel(threads, kindNames, kindName -> {
+            final DefaultCamelCatalog c = Thread.currentThread() == callerThread ? catalog : catalogs.get();
+            return (ArtifactModel<?>) c.model(kindName.getKey(), kindName.getValue());
+        });
+        final Map<org.apache.camel.catalog.Kind, List<ArtifactModel<?>>> result = new LinkedHashMap<>();
+        kinds().forEach(kind -> result.put(kind, new ArrayList<>()));
+        for (int i = 0; i < models.size(); i++) {
+            result.get(kindNames.get(i).getKey()).add(models.get(i));
+        }
+        return result;
+    }
+
     public static Stream<org.apache.camel.catalog.Kind> kinds() {
         return Stream.of(org.apache.camel.catalog.Kind.values())
                 .filter(kind -> kind != org.apache.camel.catalog.Kind.eip);
@@ -316,27 +474,108 @@ public class CqCatalog {
         }
     }
 
+    /**
+     * @param kind the {@link org.apache.camel.catalog.Kind} of the model
+     * @param name the name of the model
+     * @return the complete model with all fields set
+     */
     public BaseModel<?> load(org.apache.camel.catalog.Kind kind, String name) {
-        return catalog.model(kind, name);
+        final Index index = index();
+        if (!index.complete) {
+            /* The models read from a CatalogSnapshot have only some of the fields set */
+            return catalog.model(kind, name);
+        }
+        final Map<String, ArtifactModel<?>> models = index.byKindAndName.get(kind);
+        final ArtifactModel<?> result = models != null ? models.get(name) : null;
+        /* Let the catalog report missing models the usual way */
+        return result != null ? result : catalog.model(kind, name);
+    }
+
+    /**
+     * An immutable index of catalog models. The model instances are shared by all callers and must not be modified.
+     */
+    static class Index {
+        /** All models in the order of {@link CqCatalog#kinds()} and then in the order of the catalog names */
+        private final List<ArtifactModel<?>> models;
+        private final Map<org.apache.camel.catalog.Kind, Map<String, ArtifactModel<?>>> byKindAndName;
+        /** Positions in {@link #models} by artifactId */
+        private final Map<String, int[]> positionsByArtifactId;
+        /** {@code false} if the models were read from a {@link CatalogSnapshot} and thus have only some fields set */
+        private final boolean complete;
+
+        Index(Map<org.apache.camel.catalog.Kind, List<ArtifactModel<?>>> modelsByKind, boolean complete) {
+            final List<ArtifactModel<?>> models = new ArrayList<>();
+            final Map<org.apache.camel.catalog.Kind, Map<String, ArtifactModel<?>>> byKindAndName = new EnumMap<>(
+                    org.apache.camel.catalog.Kind.class);
+            final Map<String, List<Integer>> positions = new HashMap<>();
+            for (Entry<org.apache.camel.catalog.Kind, List<ArtifactModel<?>>> e : modelsByKind.entrySet()) {
+                final Map<String, ArtifactModel<?>> byName = new LinkedHashMap<>();
+                for (ArtifactModel<?> model : e.getValue()) {
+                    byName.put(model.getName(), model);
+                    positions.computeIfAbsent(model.getArtifactId(), k -> new ArrayList<>()).add(models.size());
+                    models.add(model);
+                }
+                byKindAndName.put(e.getKey(), Collections.unmodifiableMap(byName));
+            }
+            this.models = Collections.unmodifiableList(models);
+            this.byKindAndName = Collections.unmodifiableMap(byKindAndName);
+            final Map<String, int[]> positionsByArtifactId = new HashMap<>(positions.size());
+            for (Entry<String, List<Integer>> e : positions.entrySet()) {
+                positionsByArtifactId.put(e.getKey(), e.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            this.positionsByArtifactId = positionsByArtifactId;
+            this.complete = complete;
+        }
+
+        IntStream positions(String artifactId) {
+            final int[] result = positionsByArtifactId.get(artifactId);
+            return result != null ? IntStream.of(result) : IntStream.empty();
+        }
     }
 
     public static class GavCqCatalog extends CqCatalog implements AutoCloseable {
 
         private final FileSystem jarFileSystem;
-
+        /** A temporary copy of the catalog jar to delete on {@link #close()} or {@code null} */
+        private final Path tempJar;
+
+        /**
+         * Opens the given catalog artifact. The models are read from a {@link CatalogSnapshot} stored next to the
+         * catalog jar in the {@code localRepository} if it is up to date, otherwise the snapshot is created.
+         * <p>
+         * The catalog jar is opened in place if it exists in the {@code localRepository}; otherwise it is downloaded
+         * to a temporary file that is deleted on {@link #close()}.
+         *
+         * @param localRepository the local Maven repository
+         * @param flavor the {@link Flavor} of the catalog
+         * @param version the version of the catalog
+         * @return a new {@link GavCqCatalog}
+         */
         public static GavCqCatalog open(Path localRepository, Flavor flavor, String version) {
-            final Path jarPath = CqUtils.copyJar(localRepository, flavor.getGroupId(), flavor.getArtifactId(), version);
+            final Path snapshotFile = CatalogSnapshot.path(localRepository, flavor.getGroupId(), flavor.getArtifactId(),
+                    version);
+            final Path localJarPath = CqUtils.artifactPath(localRepository, flavor.getGroupId(), flavor.getArtifactId(),
+                    version, "jar");
+            final String snapshotStamp = snapshotStamp(localJarPath, version);
+            final Path tempJar = Files.exists(localJarPath)
+                    ? null
+                    : CqUtils.copyArtifact(localRepository, flavor.getGroupId(), flavor.getArtifactId(), version, "jar");
+            final Path jarPath = tempJar != null ? tempJar : localJarPath;
             try {
                 final FileSystem fs = FileSystems.newFileSystem(jarPath, (ClassLoader) null);
-                return new GavCqCatalog(fs, flavor);
-            } catch (IOException e) {
+                return new GavCqCatalog(fs, tempJar, flavor, snapshotStamp != null ? snapshotFile : null, snapshotStamp);
+            } catch (IOException | RuntimeException e) {
+                if (tempJar != null) {
+                    CqUtils.deleteQuietly(tempJar);
+                }
                 throw new RuntimeException("Could not open file system "+ jarPath, e);
             }
         }
 
-        GavCqCatalog(FileSystem jarFileSystem, Flavor flavor) {
-            super(jarFileSystem.getRootDirectories().iterator().next(), flavor);
+        GavCqCatalog(FileSystem jarFileSystem, Path tempJar, Flavor flavor, Path snapshotFile, String snapshotStamp) {
+            super(jarFileSystem.getRootDirectories().iterator().next(), flavor, snapshotFile, snapshotStamp);
             this.jarFileSystem = jarFileSystem;
+            this.tempJar = tempJar;
         }
 
         @Override
@@ -345,6 +584,10 @@ public class CqCatalog {
                 jarFileSystem.close();
             } catch (IOException e) {
                 throw new RuntimeException("Could not close catalog "+ this.baseDir, e);
+            } finally {
+                if (tempJar != null) {
+                    CqUtils.deleteQuietly(tempJar);
+                }
             }
         }
     }
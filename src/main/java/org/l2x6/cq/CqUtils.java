@@ -18,14 +18,25 @@ package org.l2x6.cq;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -33,7 +44,12 @@ import java.util.Locale;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -62,6 +78,8 @@ public class CqUtils {
     public static final List<String> DEFAULT_CATEGORIES = Collections.singletonList("integration");
     public static final String DEFAULT_TEMPLATES_URI_BASE = "classpath:/create-extension-templates";
     public static final String DEFAULT_ENCODING = "utf-8";
+    /** The size of the byte buffers used by {@link #readText(Path, Charset)} and {@link #write(Path, CharSequence, Charset, boolean)} */
+    static final int CODER_BUFFER_SIZE = 8 * 1024;
 
     static TemplateLoader createTemplateLoader(Path basePath, String defaultUriBase, String templatesUriBase) {
         final TemplateLoader defaultLoader = new ClassTemplateLoader(CreateExtensionMojo.class,
@@ -127,11 +145,27 @@ public class CqUtils {
         return templateCfg;
     }
 
-    static String getVersion(Model basePom) {
-        return basePom.getVersion() != null ? basePom.getVersion()
-                : basePom.getParent() != null && basePom.getParent().getVersion() != null
-                        ? basePom.getParent().getVersion()
-                        : null;
+    /**
+     * @return a {@link PomQuery.Builder} selecting the {@code groupId}, {@code artifactId} and {@code version} of a
+     *         project and its parent, as needed by {@link #getGroupId(PomQuery)} and {@link #getVersion(PomQuery)}
+     */
+    static PomQuery.Builder gavQuery() {
+        return PomQuery.builder()
+                .value("project/groupId")
+                .value("project/artifactId")
+                .value("project/version")
+                .value("project/parent/groupId")
+                .value("project/parent/version");
+    }
+
+    static String getGroupId(PomQuery basePom) {
+        final String groupId = basePom.getValue("project/groupId");
+        return groupId != null ? groupId : basePom.getValue("project/parent/groupId");
+    }
+
+    static String getVersion(PomQuery basePom) {
+        final String version = basePom.getValue("project/version");
+        return version != null ? version : basePom.getValue("project/parent/version");
     }
 
     public static Model readPom(final Path path, Charset charset) {
@@ -295,35 +329,276 @@ public class CqUtils {
                 .collect(Collectors.joining("."));
     }
 
-    static Path copyJar(Path localRepository, String groupId, String artifactId, String version) {
-        return copyArtifact(localRepository, groupId, artifactId, version, "jar");
+    static String artifactRelativePath(String groupId, String artifactId, String version, String type) {
+        return groupId.replace('.', '/') + "/" + artifactId + "/" + version + "/" + artifactId + "-" + version + "."
+                + type;
     }
 
+    static Path artifactPath(Path localRepository, String groupId, String artifactId, String version, String type) {
+        return localRepository.resolve(artifactRelativePath(groupId, artifactId, version, type));
+    }
+
+    /**
+     * Copies the given artifact from the {@code localRepository} or, if it is not available there, downloads it from
+     * the Apache Maven repository to a new temp file. Prefer using {@link #artifactPath(Path, String, String, String, String)}
+     * directly if the artifact exists in the {@code localRepository}.
+     *
+     * @return the path of the new temp file; the caller is responsible for deleting it
+     */
     static Path copyArtifact(Path localRepository, String groupId, String artifactId, String version, String type) {
-        final String relativeJarPath = groupId.replace('.', '/') + "/" + artifactId + "/" + version + "/" + artifactId + "-"
-                + version + "." + type;
+        final String relativeJarPath = artifactRelativePath(groupId, artifactId, version, type);
         final Path localPath = localRepository.resolve(relativeJarPath);
         final boolean localExists = Files.exists(localPath);
         final String remoteUri = "https://repository.apache.org/content/groups/public/" + relativeJarPath;
         Path result;
         try {
             result = Files.createTempFile(null, localPath.getFileName().toString());
-            try (InputStream in = (localExists ? Files.newInputStream(localPath) : new URL(remoteUri).openStream());
-                    OutputStream out = Files.newOutputStream(result)) {
-                final byte[] buf = new byte[4096];
-                int len;
-                while ((len = in.read(buf)) >= 0) {
-                    out.write(buf, 0, len);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create temp file", e);
+        }
+        try {
+            if (localExists) {
+                Files.copy(localPath, result, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                try (InputStream in = new URL(remoteUri).openStream()) {
+                    Files.copy(in, result, StandardCopyOption.REPLACE_EXISTING);
                 }
-            } catch (IOException e) {
-                throw new RuntimeException("Could not copy " + (localExists ? localPath : remoteUri) + " to " + result, e);
             }
         } catch (IOException e) {
-            throw new RuntimeException("Could not create temp file", e);
+            deleteQuietly(result);
+            throw new RuntimeException("Could not copy " + (localExists ? localPath : remoteUri) + " to " + result, e);
         }
         return result;
     }
 
+    static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * @param parallelism the requested number of threads; values {@code <= 0} stand for
+     *        {@link Runtime#availableProcessors()}
+     * @return the effective number of threads
+     */
+    public static int parallelism(int parallelism) {
+        return parallelism <= 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+    }
+
+    /**
+     * Applies the given {@code mapper} to each one of the given {@code items} on a work-stealing {@link ForkJoinPool}
+     * and returns the results in the order of {@code items}. The first failure prevents the items that have not
+     * started yet from being processed. If more than one item fails, the first failure (in the order of
+     * {@code items}) is thrown with the other ones attached as suppressed exceptions.
+     *
+     * @param <T> the item type
+     * @param <R> the result type
+     * @param parallelism the number of threads to use; values {@code <= 0} stand for
+     *        {@link Runtime#availableProcessors()}
+     * @param items the items to process
+     * @param mapper the function to apply to each item
+     * @return a {@link List} of results in the order of {@code items}
+     */
+    public static <T, R> List<R> mapParallel(int parallelism, List<T> items, Function<T, R> mapper) {
+        final int threads = Math.min(parallelism(parallelism), items.size());
+        final List<R> result = new ArrayList<>(items.size());
+        if (threads <= 1) {
+            for (T item : items) {
+                result.add(mapper.apply(item));
+            }
+            return result;
+        }
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            final AtomicBoolean failed = new AtomicBoolean();
+            /* ForkJoinTask.get() may re-create the exception thrown in another thread so we keep the originals */
+            final Throwable[] failures = new Throwable[items.size()];
+            final List<ForkJoinTask<R>> tasks = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                final int index = i;
+                final T item = items.get(i);
+                tasks.add(pool.submit(() -> {
+                    if (failed.get()) {
+                        /* fail fast */
+                        return null;
+                    }
+                    try {
+                        return mapper.apply(item);
+                    } catch (RuntimeException | Error e) {
+                        failures[index] = e;
+                        failed.set(true);
+                        throw e;
+                    }
+                }));
+            }
+            Throwable failure = null;
+            for (int i = 0; i < tasks.size(); i++) {
+                try {
+                    result.add(tasks.get(i).get());
+                } catch (ExecutionException e) {
+                    final Throwable cause = failures[i] != null ? failures[i] : e.getCause();
+                    if (failure == null) {
+                        failure = cause;
+                    } else {
+                        failure.addSuppressed(cause);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for " + items.size() + " tasks", e);
+                }
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            } else if (failure != null) {
+                throw new RuntimeException(failure);
+            }
+            return result;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the given text file through a {@link FileChannel} and decodes it using a small buffer, so that no byte
+     * array of the size of the whole file is ever created. The file is not memory mapped because a mapped file cannot
+     * be overwritten or replaced on some platforms until the mapping is garbage collected, which would break writing
+     * the result back. Malformed and unmappable input is replaced in the same way as
+     * {@link String#String(byte[], Charset)} does.
+     *
+     * @param path the file to read
+     * @param charset the encoding of the file
+     * @return a new {@link CharBuffer} with the decoded content of the file
+     */
+    public static CharBuffer readText(Path path, Charset charset) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final CharsetDecoder decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            /* maxCharsPerByte() makes the initial capacity an upper bound unless the file grows while we read it */
+            CharBuffer out = CharBuffer.allocate(
+                    (int) Math.min(Integer.MAX_VALUE - 8, (long) (channel.size() * (double) decoder.maxCharsPerByte())));
+            final ByteBuffer in = ByteBuffer.allocate(CODER_BUFFER_SIZE);
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                endOfInput = channel.read(in) < 0;
+                in.flip();
+                while (decoder.decode(in, out, endOfInput).isOverflow()) {
+                    out = grow(out);
+                }
+                in.compact();
+            }
+            while (decoder.flush(out).isOverflow()) {
+                out = grow(out);
+            }
+            out.flip();
+            return out;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + path, e);
+        }
+    }
+
+    static CharBuffer grow(CharBuffer buffer) {
+        final CharBuffer result = CharBuffer.allocate(Math.max(16, buffer.capacity() * 2));
+        buffer.flip();
+        return result.put(buffer);
+    }
+
+    /**
+     * Writes the given {@code content} to the given {@code path}. If {@code atomic} is {@code true}, the
+     * {@code content} is first written to a temporary file in the same directory which is then moved over the
+     * {@code path}, so that concurrent readers never see a partially written file. The POSIX permissions of an
+     * existing file are preserved in that case.
+     *
+     * @param path the file to write
+     * @param content the bytes to write
+     * @param atomic whether the file should be replaced atomically
+     */
+    public static void write(Path path, byte[] content, boolean atomic) {
+        write(path, atomic, target -> Files.write(target, content));
+    }
+
+    /**
+     * Encodes the given {@code content} using the given {@code charset} and writes it to the given {@code path}
+     * through a small buffer, so that no byte array of the size of the whole {@code content} is ever created.
+     * Malformed and unmappable characters are replaced in the same way as {@link String#getBytes(Charset)} does.
+     *
+     * @param path the file to write
+     * @param content the text to write
+     * @param charset the encoding to use
+     * @param atomic whether the file should be replaced atomically, see {@link #write(Path, byte[], boolean)}
+     */
+    public static void write(Path path, CharSequence content, Charset charset, boolean atomic) {
+        write(path, atomic, target -> {
+            final CharsetEncoder encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            final CharBuffer in = content instanceof CharBuffer
+                    ? ((CharBuffer) content).duplicate()
+                    : CharBuffer.wrap(content);
+            final ByteBuffer out = ByteBuffer.allocate(CODER_BUFFER_SIZE);
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                CoderResult result;
+                do {
+                    result = encoder.encode(in, out, true);
+                    drain(out, channel);
+                } while (result.isOverflow());
+                do {
+                    result = encoder.flush(out);
+                    drain(out, channel);
+                } while (result.isOverflow());
+            }
+        });
+    }
+
+    static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    static void write(Path path, boolean atomic, ContentWriter writer) {
+        try {
+            if (!atomic) {
+                writer.write(path);
+                return;
+            }
+            final Path dir = path.toAbsolutePath().getParent();
+            final Path tmp = Files.createTempFile(dir, "." + path.getFileName().toString(), ".tmp");
+            try {
+                writer.write(tmp);
+                final PosixFileAttributeView posixView = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+                if (posixView != null && Files.exists(path)) {
+                    Files.getFileAttributeView(tmp, PosixFileAttributeView.class)
+                            .setPermissions(posixView.readAttributes().permissions());
+                }
+                try {
+                    Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write " + path, e);
+        }
+    }
+
+    /**
+     * Writes some content to a file.
+     */
+    @FunctionalInterface
+    interface ContentWriter {
+        void write(Path target) throws IOException;
+    }
+
     public static boolean isEmptyPropertiesFile(Path file) {
         final Properties props = new Properties();
         try (InputStream in = Files.newInputStream(file)) {
@@ -22,6 +22,7 @@ import java.lang.reflect.Field;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -31,7 +32,6 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.apache.camel.tooling.model.ArtifactModel;
-import org.apache.maven.model.Model;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -219,6 +219,9 @@ public class CreateExtensionMojo extends AbstractMojo {
     @Parameter(defaultValue = CqUtils.DEFAULT_ENCODING, required = true, property = "cq.encoding")
     String encoding;
 
+    @Parameter(defaultValue = "${settings.localRepository}", readonly = true)
+    String localRepository;
+
     /**
      * Path relative to {@link #basedir} pointing at a {@code pom.xml} file containing the BOM (Bill of Materials) that
      * manages runtime extension artifacts. If set, the newly created Runtime module will be added to
@@ -388,7 +391,8 @@ public class CreateExtensionMojo extends AbstractMojo {
                 : Collections.emptySet();
 
         charset = Charset.forName(encoding);
-        final CqCatalog cqCatalog = new CqCatalog(Flavor.camel);
+        final CqCatalog cqCatalog = new CqCatalog(Flavor.camel,
+                localRepository == null ? null : Paths.get(localRepository));
         this.models = cqCatalog.filterModels(artifactIdBase).collect(Collectors.toList());
         final List<ArtifactModel<?>> primaryModels = cqCatalog.primaryModel(artifactIdBase);
         switch (primaryModels.size()) {
@@ -429,20 +433,23 @@ public class CreateExtensionMojo extends AbstractMojo {
         }
 
         final Path extensionsPomPath = this.extensionsPath.resolve("pom.xml");
-        final Model extensionsModel = CqUtils.readPom(extensionsPomPath, charset);
-        this.groupId = getGroupId(extensionsModel);
-        this.version = CqUtils.getVersion(extensionsModel);
+        final PomQuery extensionsPom = CqUtils.gavQuery()
+                .values("project/modules/module")
+                .read(extensionsPomPath, charset);
+        this.groupId = CqUtils.getGroupId(extensionsPom);
+        this.version = CqUtils.getVersion(extensionsPom);
 
         final TemplateParams.Builder templateParams = getTemplateParams();
         final Configuration cfg = CqUtils.getTemplateConfig(basePath, CqUtils.DEFAULT_TEMPLATES_URI_BASE, templatesUriBase,
                 encoding);
 
         generateExtensionProjects(cfg, templateParams);
-        if (!extensionsModel.getModules().contains(artifactIdBase)) {
+        if (!extensionsPom.getValues("project/modules/module").contains(artifactIdBase)) {
             getLog().info(String.format("Adding module [%s] to [%s]", artifactIdBase, extensionsPomPath));
-            pomTransformer(extensionsPomPath).transform(Transformation.addModule(artifactIdBase));
+            pomTransformer(extensionsPomPath).transform(Transformation.addModule(artifactIdBase), Transformation.sortModules());
+        } else {
+            pomTransformer(extensionsPomPath).transform(Transformation.sortModules());
         }
-        PomSorter.sortModules(extensionsPomPath);
 
         if (runtimeBomPath != null) {
             List<PomTransformer.Transformation> transformations = new ArrayList<PomTransformer.Transformation>();
@@ -463,8 +470,8 @@ public class CreateExtensionMojo extends AbstractMojo {
                 getLog().info(String.format("Adding [%s] to dependencyManagement in [%s]", gavtcs, runtimeBomPath));
                 transformations.add(Transformation.addManagedDependency(gavtcs));
             }
+            transformations.add(Transformation.sortDependencyManagement());
             pomTransformer(runtimeBomPath).transform(transformations);
-            PomSorter.sortDependencyManagement(runtimeBomPath);
         }
         generateItest(cfg, templateParams);
 
@@ -590,20 +597,25 @@ public class CreateExtensionMojo extends AbstractMojo {
             itestDir = itestParentPath.getParent().resolve("integration-test");
         }
 
-        final Model itestParent = CqUtils.readPom(itestParentPath, charset);
-        if (!"pom".equals(itestParent.getPackaging())) {
+        final PomQuery itestParent = CqUtils.gavQuery()
+                .value("project/packaging")
+                .read(itestParentPath, charset);
+        final String packaging = itestParent.getValue("project/packaging");
+        if (!"pom".equals(packaging)) {
             throw new RuntimeException(
                     "Can add an extension integration test only under a project with packagin 'pom'; found: "
-                            + itestParent.getPackaging() + " in " + itestParentPath);
+                            + packaging + " in " + itestParentPath);
         }
         getLog().info(String.format("Adding module [%s] to [%s]", itestDir.getFileName().toString(), itestParentPath));
-        pomTransformer(itestParentPath).transform(Transformation.addModule(itestDir.getFileName().toString()));
         if (nativeSupported) {
-            PomSorter.sortModules(itestParentPath);
+            pomTransformer(itestParentPath).transform(Transformation.addModule(itestDir.getFileName().toString()),
+                    Transformation.sortModules());
+        } else {
+            pomTransformer(itestParentPath).transform(Transformation.addModule(itestDir.getFileName().toString()));
         }
 
-        model.itestParentGroupId(getGroupId(itestParent));
-        model.itestParentArtifactId(itestParent.getArtifactId());
+        model.itestParentGroupId(CqUtils.getGroupId(itestParent));
+        model.itestParentArtifactId(itestParent.getValue("project/artifactId"));
         model.itestParentVersion(CqUtils.getVersion(itestParent));
         model.itestParentRelativePath("../pom.xml");
 
@@ -679,13 +691,6 @@ public class CreateExtensionMojo extends AbstractMojo {
         return transformedGavtc.toString();
     }
 
-    static String getGroupId(Model basePom) {
-        return basePom.getGroupId() != null ? basePom.getGroupId()
-                : basePom.getParent() != null && basePom.getParent().getGroupId() != null
-                        ? basePom.getParent().getGroupId()
-                        : null;
-    }
-
     public void evalTemplate(Configuration cfg, String templateUri, Path dest, TemplateParams model) {
         CqUtils.evalTemplate(cfg, templateUri, dest, model, m -> getLog().info(m));
     }
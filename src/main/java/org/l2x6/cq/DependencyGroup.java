@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+/**
+ * A group of managed dependencies sharing the same {@code groupId} as placed by
+ * {@link PomSorter#sortDependencyManagement(java.nio.file.Path)}.
+ */
+public class DependencyGroup {
+    public DependencyGroup() {
+    }
+
+    public DependencyGroup(String groupId, String comment) {
+        super();
+        this.groupId = groupId;
+        this.comment = comment;
+    }
+
+    private String groupId;
+    private String comment;
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(String groupId) {
+        this.groupId = groupId;
+    }
+
+    /**
+     * @return the text of the generated comment preceding the group; {@link #getGroupId()} if no comment was set
+     */
+    public String getComment() {
+        return comment != null ? comment : groupId;
+    }
+
+    public void setComment(String comment) {
+        this.comment = comment;
+    }
+
+    @Override
+    public String toString() {
+        return groupId + ":" + getComment();
+    }
+}
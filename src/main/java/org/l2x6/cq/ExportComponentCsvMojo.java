@@ -17,19 +17,16 @@
 package org.l2x6.cq;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.Writer;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Arrays;
-import java.util.HashSet;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.camel.catalog.Kind;
-import org.apache.camel.tooling.model.ArtifactModel;
 import org.apache.camel.tooling.model.BaseModel;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -37,11 +34,12 @@ import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
+import org.l2x6.cq.ComponentTable.Format;
 import org.l2x6.cq.CqCatalog.Flavor;
 import org.l2x6.cq.CqCatalog.GavCqCatalog;
 
 /**
- * Exports the list of components, languages, data formats and others to a CSV file.
+ * Exports the list of components, languages, data formats and others to CSV, JSON Lines or columnar binary files.
  */
 @Mojo(name = "export-csv", threadSafe = true, requiresProject = false)
 public class ExportComponentCsvMojo extends AbstractMojo {
@@ -64,6 +62,27 @@ public class ExportComponentCsvMojo extends AbstractMojo {
     @Parameter(defaultValue = ".")
     protected File outputDir;
 
+    /**
+     * A comma separated list of output formats. Supported values are {@code csv} (tab separated values),
+     * {@code jsonl} (JSON Lines) and {@code columnar} (a compact binary format with dictionary-encoded strings
+     * described in {@link ComponentTable#writeColumnar(Path)}). Each format produces one file per kind with the
+     * respective extension, e.g. {@code components.csv}, {@code components.jsonl} and {@code components.cqcol}.
+     *
+     * @since 0.24.0
+     */
+    @Parameter(property = "cq.formats", defaultValue = "csv")
+    String formats;
+
+    /**
+     * A file with the rules for assigning the primary group to components. If not set, the default rules stored in
+     * the {@value LabelClassifier#DEFAULT_RULES} class path resource of this plugin are used. The format is described
+     * in the default rules file; a modified copy of it can be used to add groups without releasing the plugin.
+     *
+     * @since 0.24.0
+     */
+    @Parameter(property = "cq.primaryGroupsFile")
+    File primaryGroupsFile;
+
     @Parameter(defaultValue = "${settings.localRepository}", readonly = true)
     String localRepository;
 
@@ -78,104 +97,56 @@ public class ExportComponentCsvMojo extends AbstractMojo {
     public void execute() throws MojoExecutionException, MojoFailureException {
         final Path localRepositoryPath = Paths.get(localRepository);
         final Path outputPath = outputDir.toPath();
+        final Set<Format> formats = EnumSet.noneOf(Format.class);
+        for (String format : this.formats.split(",")) {
+            formats.add(Format.of(format));
+        }
+        final LabelClassifier classifier = primaryGroupsFile != null
+                ? LabelClassifier.load(primaryGroupsFile.toPath())
+                : LabelClassifier.loadDefault();
         try (GavCqCatalog camelCatalog = GavCqCatalog.open(localRepositoryPath, Flavor.camel, camelCatalogVersion);
                 GavCqCatalog camelQuarkusCatalog = GavCqCatalog.open(localRepositoryPath, Flavor.camelQuarkus, camelQuarkusCatalogVersion)) {
-            CqCatalog.kinds().forEach(kind -> {
-                final Path outputFile = outputPath.resolve(kind.name() + "s.csv");
-                try (Writer out = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
-                    out.write("Priority\tName\tScheme\tartifactId\tKind\tDeprecated\tLabel\tGroup\tCQ community\tProduct\tCommunity issue\tIntegration test\tSprint\tComment\n");
-                    camelCatalog.models(kind)
-                            .filter(CqCatalog::isFirstScheme)
-                            .sorted(CqCatalog.compareArtifactId().thenComparing(BaseModel.compareTitle()))
-                            .forEach(model -> {
-                                // prio
-                                try {
-                                    out.write("\t");
-                                    out.write(model.getTitle());
-                                    out.write('\t');
-                                    out.write(model.getName());
-                                    out.write('\t');
-                                    out.write(model.getArtifactId());
-                                    out.write('\t');
-                                    out.write(model.getKind());
-                                    out.write('\t');
-                                    out.write(String.valueOf(model.isDeprecated()));
-                                    out.write('\t');
-                                    out.write(model.getLabel() != null ? model.getLabel() : "");
-                                    out.write('\t');
-                                    out.write(primaryGroup(kind, model.getLabel(), model.getName()));
-                                    out.write('\t');
-                                    out.write(quarkusCommunitySupport(camelQuarkusCatalog, kind, model));
-                                    out.write('\n');
-                                } catch (IOException e) {
-                                    throw new RuntimeException("Could not write to " + outputFile, e);
-                                }
-                            });
-                } catch (IOException e) {
-                    throw new RuntimeException("Could not write to " + outputFile, e);
+            final List<Kind> kinds = CqCatalog.kinds().collect(Collectors.toList());
+            CqUtils.mapParallel(kinds.size(), kinds, kind -> {
+                final ComponentTable table = table(kind, camelCatalog,
+                        quarkusCommunitySupport(camelQuarkusCatalog, kind), classifier);
+                for (Format format : formats) {
+                    table.write(format, outputPath.resolve(kind.name() + "s" + format.getExtension()));
                 }
+                return kind;
             });
         }
     }
 
-    private String quarkusCommunitySupport(GavCqCatalog camelQuarkusCatalog, Kind kind, ArtifactModel<?> model) {
-        try {
-            BaseModel<?> cqModel = camelQuarkusCatalog.load(kind, model.getName());
-            return cqModel.isNativeSupported() ? "Native" : "JVM";
-        } catch (RuntimeException e) {
-            if (e.getCause() instanceof NoSuchFileException) {
-                return "n/a";
-            }
-            throw e;
-        }
+    static ComponentTable table(Kind kind, CqCatalog camelCatalog, Map<String, String> quarkusCommunitySupport,
+            LabelClassifier classifier) {
+        final List<String[]> rows = camelCatalog.models(kind)
+                .filter(CqCatalog::isFirstScheme)
+                .sorted(CqCatalog.compareArtifactId().thenComparing(BaseModel.compareTitle()))
+                .map(model -> new String[] {
+                        model.getTitle(),
+                        model.getName(),
+                        model.getArtifactId(),
+                        model.getKind(),
+                        String.valueOf(model.isDeprecated()),
+                        model.getLabel(),
+                        classifier.classify(kind, model.getLabel(), model.getName()),
+                        quarkusCommunitySupport.getOrDefault(model.getName(), "n/a")
+                })
+                .collect(Collectors.toList());
+        return new ComponentTable(rows);
     }
 
-    static String primaryGroup(Kind kind, String rawLabels, String name) {
-        if (kind != Kind.component) {
-            return kind.name();
-        }
-        if (name.startsWith("aws")) {
-            return "aws";
-        }
-        if (name.startsWith("azure")) {
-            return "azure";
-        }
-        if (name.startsWith("google")) {
-            return "google";
-        }
-        if (name.startsWith("spring")) {
-            return "spring";
-        }
-        if (name.startsWith("kubernetes") || name.startsWith("openshift") || name.startsWith("openstack")
-                || name.startsWith("digitalocean")) {
-            return "cloud";
-        }
-        if (rawLabels != null) {
-            final Set<String> labels = new HashSet<>(Arrays.asList(rawLabels.split(",")));
-            if (labels.contains("core")) {
-                return "core";
-            } else if (labels.contains("file") || labels.contains("document")) {
-                return "file";
-            } else if (labels.contains("http") || labels.contains("websocket")) {
-                return "http";
-            } else if (labels.contains("messaging")) {
-                return "messaging";
-            } else if (labels.contains("database") || labels.contains("nosql") || labels.contains("sql")
-                    || labels.contains("bigdata")) {
-                return "database";
-            } else if (labels.contains("clustering")) {
-                return "clustering";
-            } else if (labels.contains("monitoring")) {
-                return "monitoring";
-            } else if (labels.contains("api")) {
-                return "api";
-            } else if (labels.contains("cache")) {
-                return "cache";
-            } else if (labels.size() == 1) {
-                return labels.iterator().next();
-            }
-        }
-        return "";
+    /**
+     * @param camelQuarkusCatalog the catalog to read the models from
+     * @param kind the {@link Kind} of models to consider
+     * @return a {@link Map} from model names to {@code Native} or {@code JVM}
+     */
+    static Map<String, String> quarkusCommunitySupport(CqCatalog camelQuarkusCatalog, Kind kind) {
+        final Map<String, String> result = new HashMap<>();
+        camelQuarkusCatalog.models(kind)
+                .forEach(cqModel -> result.put(cqModel.getName(), cqModel.isNativeSupported() ? "Native" : "JVM"));
+        return result;
     }
 
 }
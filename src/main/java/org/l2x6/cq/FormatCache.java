@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of content hashes of files processed by {@link FormatPomsMojo}. A file is considered up to date if its
+ * current content hash is equal to the hash stored after the last run and if the fingerprint of all other inputs of the
+ * mojo (plugin version, encoding, the set of extensions, etc.) has not changed either.
+ */
+public class FormatCache {
+    private static final String FINGERPRINT_KEY = "cq.format.fingerprint";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Path cacheFile;
+    private final Path baseDir;
+    private final String fingerprint;
+    private final Map<String, String> hashes;
+
+    /**
+     * Loads the cache from the given {@code cacheFile}. The entries stored in the {@code cacheFile} are ignored if the
+     * stored fingerprint is not equal to the given {@code fingerprint}.
+     *
+     * @param cacheFile the file to load the cache from; {@code null} disables the cache
+     * @param baseDir the directory against which the paths of the cached files are relativized
+     * @param fingerprint the fingerprint of all inputs other than the content of the cached files
+     * @return a new {@link FormatCache}
+     */
+    public static FormatCache load(Path cacheFile, Path baseDir, String fingerprint) {
+        final Map<String, String> hashes = new ConcurrentHashMap<>();
+        if (cacheFile != null && Files.isRegularFile(cacheFile)) {
+            final Properties props = new Properties();
+            try (InputStream in = Files.newInputStream(cacheFile)) {
+                props.load(in);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not read " + cacheFile, e);
+            }
+            if (fingerprint.equals(props.getProperty(FINGERPRINT_KEY))) {
+                props.remove(FINGERPRINT_KEY);
+                for (Entry<Object, Object> en : props.entrySet()) {
+                    hashes.put((String) en.getKey(), (String) en.getValue());
+                }
+            }
+        }
+        return new FormatCache(cacheFile, baseDir, fingerprint, hashes);
+    }
+
+    FormatCache(Path cacheFile, Path baseDir, String fingerprint, Map<String, String> hashes) {
+        this.cacheFile = cacheFile;
+        this.baseDir = baseDir;
+        this.fingerprint = fingerprint;
+        this.hashes = hashes;
+    }
+
+    /**
+     * @param file the file to check
+     * @return {@code true} if the given {@code file} has not changed since it was last passed to
+     *         {@link #update(Path)}; {@code false} otherwise or if this cache is disabled
+     */
+    public boolean isUpToDate(Path file) {
+        if (cacheFile == null) {
+            return false;
+        }
+        final String cachedHash = hashes.get(key(file));
+        return cachedHash != null && cachedHash.equals(hash(file));
+    }
+
+    /**
+     * Records the current content hash of the given {@code file}.
+     *
+     * @param file the file whose content hash should be recorded
+     */
+    public void update(Path file) {
+        if (cacheFile != null) {
+            final String hash = hash(file);
+            if (hash != null) {
+                hashes.put(key(file), hash);
+            } else {
+                hashes.remove(key(file));
+            }
+        }
+    }
+
+    /**
+     * Stores this cache to the {@code cacheFile} passed to {@link #load(Path, Path, String)}. A no-op if this cache is
+     * disabled.
+     */
+    public void store() {
+        if (cacheFile == null) {
+            return;
+        }
+        final Properties props = new Properties();
+        props.putAll(hashes);
+        props.setProperty(FINGERPRINT_KEY, fingerprint);
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            try (OutputStream out = Files.newOutputStream(cacheFile)) {
+                props.store(out, null);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write " + cacheFile, e);
+        }
+    }
+
+    String key(Path file) {
+        return baseDir.relativize(file).toString().replace('\\', '/');
+    }
+
+    /**
+     * @param inputs the inputs to hash
+     * @return a hex encoded SHA-1 hash of the given {@code inputs}
+     */
+    public static String fingerprint(Object... inputs) {
+        final MessageDigest digest = newDigest();
+        for (Object input : inputs) {
+            digest.update(String.valueOf(input).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * @param file the file to hash
+     * @return a hex encoded SHA-1 hash of the content of the given {@code file} or {@code null} if the {@code file}
+     *         does not exist
+     */
+    static String hash(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return toHex(newDigest().digest(Files.readAllBytes(file)));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + file, e);
+        }
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        final char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0x0f];
+            result[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+        }
+        return new String(result);
+    }
+
+}
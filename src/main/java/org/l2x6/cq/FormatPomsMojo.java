@@ -22,9 +22,16 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -35,6 +42,8 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.shared.model.fileset.FileSet;
 import org.apache.maven.shared.model.fileset.util.FileSetManager;
+import org.l2x6.cq.PomSorter.DependencyGroupOrder;
+import org.l2x6.cq.PomSorter.SortSummary;
 import org.l2x6.cq.PomTransformer.Transformation;
 
 /**
@@ -76,6 +85,34 @@ public class FormatPomsMojo extends AbstractMojo {
     @Parameter(property = "cq.sortDependencyManagementPaths", defaultValue = CQ_SORT_DEPENDENCY_MANAGEMENT_PATHS)
     List<String> sortDependencyManagementPaths;
 
+    /**
+     * The groups of managed dependencies to place first when sorting the {@code pom.xml} files listed in
+     * {@link #sortDependencyManagementPaths}, in the given order. Each group is preceded by a generated comment
+     * containing the {@code comment} of the group or its {@code groupId} if no {@code comment} is set. If not set,
+     * {@code org.apache.camel} and {@code org.apache.camel.quarkus} are used.
+     * <pre>{@code
+     * <dependencyGroups>
+     *     <dependencyGroup>
+     *         <groupId>org.acme</groupId>
+     *         <comment>Acme dependencies</comment>
+     *     </dependencyGroup>
+     * </dependencyGroups>
+     * }</pre>
+     *
+     * @since 0.24.0
+     */
+    @Parameter
+    List<DependencyGroup> dependencyGroups;
+
+    /**
+     * The generated comment to place before the managed dependencies whose groupId is not listed in
+     * {@link #dependencyGroups}.
+     *
+     * @since 0.24.0
+     */
+    @Parameter(property = "cq.otherDependenciesComment", defaultValue = PomSorter.OTHER_DEPENDENCIES_COMMENT)
+    String otherDependenciesComment;
+
     /**
      * A list of directory paths relative to the current module's {@code baseDir} containing Maven modules in which
      * virtual dependencies should be updated. After running this mojo, the selected {@code pom.xml} files will depend
@@ -140,6 +177,58 @@ public class FormatPomsMojo extends AbstractMojo {
     @Parameter(property = "cq.removeEmptyApplicationProperties")
     FileSet removeEmptyApplicationProperties;
 
+    /**
+     * The number of threads to use when sorting and updating the virtual dependencies in {@code pom.xml} files. Values
+     * {@code <= 0} stand for the number of available processors.
+     *
+     * @since 0.24.0
+     */
+    @Parameter(property = "cq.format.threads", defaultValue = "0")
+    int threads;
+
+    /**
+     * A file where the content hashes of the formatted {@code pom.xml} files are stored. On the next run, the
+     * {@code pom.xml} files whose content has not changed are not processed again, unless some other relevant input,
+     * such as the set of extensions in the source tree has changed in the meantime. If not set, all {@code pom.xml}
+     * files are processed on every run.
+     *
+     * @since 0.24.0
+     */
+    @Parameter(property = "cq.format.cacheFile", defaultValue = "${project.build.directory}/cq-format-cache.properties")
+    File cacheFile;
+
+    /**
+     * The version of this plugin; a part of the {@link #cacheFile} fingerprint.
+     *
+     * @since 0.24.0
+     */
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    String pluginVersion;
+
+    /**
+     * If {@code true}, the changed {@code pom.xml} files will be written to a temporary file first which will then be
+     * moved over the original file; otherwise the original files will be overwritten in place. Files whose content did
+     * not change are never written.
+     *
+     * @since 0.24.0
+     */
+    @Parameter(property = "cq.format.atomicWrite", defaultValue = "false")
+    boolean atomicWrite;
+
+    /**
+     * The way of reading and writing the {@code pom.xml} files when adding or removing virtual dependencies:
+     * <ul>
+     * <li>{@code DOM} - parse and serialize using an identity {@code javax.xml.transform.Transformer} and fix the
+     * formatting changes it introduces afterwards
+     * <li>{@code LOSSLESS} - copy the parts of the file not touched by the transformation verbatim, keeping the
+     * original whitespace, attribute order, XML declaration and comments
+     * </ul>
+     *
+     * @since 0.24.0
+     */
+    @Parameter(property = "cq.format.engine", defaultValue = "DOM")
+    PomTransformer.Engine engine;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         if (skip) {
@@ -156,31 +245,71 @@ public class FormatPomsMojo extends AbstractMojo {
                 ? skipArtifactIdBases.stream().map(base -> "camel-quarkus-" + base).collect(Collectors.toSet())
                 : Collections.emptySet();
 
-        PomSorter.sortDependencyManagement(basePath, sortDependencyManagementPaths);
-        PomSorter.sortModules(basePath, sortModulesPaths);
-        final Set<Gavtcs> allExtensions = PomSorter.findExtensionArtifactIds(basePath, extensionDirs, skipArtifactIds).stream()
+        if (dependencyGroups == null || dependencyGroups.isEmpty()) {
+            dependencyGroups = DependencyGroupOrder.DEFAULT_GROUPS;
+        }
+        if (engine == null) {
+            engine = PomTransformer.Engine.DOM;
+        }
+        if (otherDependenciesComment == null) {
+            otherDependenciesComment = PomSorter.OTHER_DEPENDENCIES_COMMENT;
+        }
+        final DependencyGroupOrder groupOrder = new DependencyGroupOrder(dependencyGroups, otherDependenciesComment);
+
+        final Set<String> extensionArtifactIds = PomSorter.findExtensionArtifactIds(basePath, extensionDirs, skipArtifactIds);
+        final FormatCache cache = FormatCache.load(
+                cacheFile == null ? null : cacheFile.toPath(),
+                basePath,
+                FormatCache.fingerprint(
+                        pluginVersion,
+                        encoding,
+                        sortModulesPaths,
+                        sortDependencyManagementPaths,
+                        dependencyGroups,
+                        otherDependenciesComment,
+                        engine,
+                        updateVirtualDependenciesDirs,
+                        updateVirtualDependenciesAllExtensionsDirs,
+                        extensionArtifactIds));
+        final Set<Path> upToDatePoms = ConcurrentHashMap.newKeySet();
+        final Set<Path> modifiedPoms = ConcurrentHashMap.newKeySet();
+
+        final List<Path> sortDependencyManagementPoms = resolveOutdated(basePath, sortDependencyManagementPaths, cache,
+                upToDatePoms);
+        final List<Path> sortModulesPoms = resolveOutdated(basePath, sortModulesPaths, cache, upToDatePoms);
+        final SortSummary sortSummary = PomSorter.sort(sortDependencyManagementPoms, sortModulesPoms, groupOrder,
+                threads, atomicWrite);
+        modifiedPoms.addAll(sortSummary.getModifiedPaths());
+        if (getLog().isDebugEnabled()) {
+            getLog().debug(sortSummary.toString());
+            sortSummary.getResults().forEach(result -> getLog().debug("    " + result));
+        }
+        final Set<Gavtcs> allExtensions = extensionArtifactIds.stream()
                 .map(artifactId -> new Gavtcs("org.apache.camel.quarkus", artifactId, null))
                 .collect(Collectors.toSet());
-        for (String updateVirtualDependenciesDir : updateVirtualDependenciesDirs) {
-            try (Stream<Path> extDirs = Files.list(basePath.resolve(updateVirtualDependenciesDir))) {
-                extDirs
-                        .filter(p -> Files.isDirectory(p) && !"support".equals(p.getFileName().toString()))
-                        .sorted()
-                        .map(p -> p.resolve("pom.xml"))
-                        .filter(p -> Files.exists(p))
-                        .forEach(pomXmlPath -> {
-                            new PomTransformer(pomXmlPath, charset)
-                                    .transform(
-                                            Transformation.updateMappedDependencies(
-                                                    Gavtcs::isVirtualDeployment,
-                                                    Gavtcs.deploymentVitualMapper(gavtcs -> allExtensions.contains(gavtcs)),
-                                                    Gavtcs.scopeAndTypeFirstComparator(),
-                                                    VIRTUAL_DEPS_INITIAL_COMMENT),
-                                            Transformation.removeProperty(true, true, "mvnd.builder.rule"),
-                                            Transformation.removeContainerElementIfEmpty(true, true, true, "properties"));
-                        });
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+        /* Collect the pom.xml files first so that we can process them in parallel */
+        final Map<Path, List<Transformation>> pomTransformations = new LinkedHashMap<>();
+        if (updateVirtualDependenciesDirs != null) {
+            final List<Transformation> transformations = Arrays.asList(
+                    Transformation.updateMappedDependencies(
+                            Gavtcs::isVirtualDeployment,
+                            Gavtcs.deploymentVitualMapper(gavtcs -> allExtensions.contains(gavtcs)),
+                            Gavtcs.scopeAndTypeFirstComparator(),
+                            VIRTUAL_DEPS_INITIAL_COMMENT),
+                    Transformation.removeProperty(true, true, "mvnd.builder.rule"),
+                    Transformation.removeContainerElementIfEmpty(true, true, true, "properties"));
+            for (String updateVirtualDependenciesDir : updateVirtualDependenciesDirs) {
+                try (Stream<Path> extDirs = Files.list(basePath.resolve(updateVirtualDependenciesDir))) {
+                    extDirs
+                            .filter(p -> Files.isDirectory(p) && !"support".equals(p.getFileName().toString()))
+                            .sorted()
+                            .map(p -> p.resolve("pom.xml"))
+                            .filter(p -> Files.exists(p))
+                            .forEach(pomXmlPath -> pomTransformations.computeIfAbsent(pomXmlPath, k -> new ArrayList<>())
+                                    .addAll(transformations));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
             }
         }
 
@@ -188,21 +317,51 @@ public class FormatPomsMojo extends AbstractMojo {
             final Set<Gavtcs> allVirtualExtensions = allExtensions.stream()
                     .map(gavtcs -> gavtcs.toVirtual())
                     .collect(Collectors.toSet());
+            final List<Transformation> transformations = Arrays.asList(
+                    Transformation.updateDependencySubset(
+                            gavtcs -> gavtcs.isVirtual(),
+                            allVirtualExtensions,
+                            Gavtcs.scopeAndTypeFirstComparator(),
+                            VIRTUAL_DEPS_INITIAL_COMMENT),
+                    Transformation.removeProperty(true, true, "mvnd.builder.rule"),
+                    Transformation.removeContainerElementIfEmpty(true, true, true, "properties"));
             updateVirtualDependenciesAllExtensionsDirs.stream()
                     .map(p -> basePath.resolve(p).resolve("pom.xml"))
-                    .forEach(pomXmlPath -> {
-                        new PomTransformer(pomXmlPath, charset)
-                                .transform(
-                                        Transformation.updateDependencySubset(
-                                                gavtcs -> gavtcs.isVirtual(),
-                                                allVirtualExtensions,
-                                                Gavtcs.scopeAndTypeFirstComparator(),
-                                                VIRTUAL_DEPS_INITIAL_COMMENT),
-                                        Transformation.removeProperty(true, true, "mvnd.builder.rule"),
-                                        Transformation.removeContainerElementIfEmpty(true, true, true, "properties"));
-                    });
+                    .forEach(pomXmlPath -> pomTransformations.computeIfAbsent(pomXmlPath, k -> new ArrayList<>())
+                            .addAll(transformations));
         }
 
+        final List<Entry<Path, List<Transformation>>> entries = new ArrayList<>(pomTransformations.entrySet());
+        CqUtils.mapParallel(threads, entries, entry -> {
+            final Path pomXmlPath = entry.getKey();
+            if (upToDatePoms.contains(pomXmlPath)
+                    || (!modifiedPoms.contains(pomXmlPath) && cache.isUpToDate(pomXmlPath))) {
+                upToDatePoms.add(pomXmlPath);
+                return null;
+            }
+            if (new PomTransformer(pomXmlPath, charset, atomicWrite, engine).transform(entry.getValue())) {
+                modifiedPoms.add(pomXmlPath);
+                return pomXmlPath;
+            }
+            return null;
+        }).stream()
+                .filter(pomXmlPath -> pomXmlPath != null)
+                .forEach(pomXmlPath -> getLog().debug("Updated virtual dependencies in " + basePath.relativize(pomXmlPath)));
+
+        /* Remember the state of all pom.xml files we have touched for the next run */
+        final List<Path> processedPoms = Stream.of(sortDependencyManagementPoms, sortModulesPoms, pomTransformations.keySet())
+                .flatMap(Collection::stream)
+                .filter(pomXmlPath -> !upToDatePoms.contains(pomXmlPath))
+                .distinct()
+                .collect(Collectors.toList());
+        CqUtils.mapParallel(threads, processedPoms, pomXmlPath -> {
+            cache.update(pomXmlPath);
+            return pomXmlPath;
+        });
+        cache.store();
+        getLog().info(String.format("Formatted pom.xml files: %d modified, %d unchanged, %d skipped as unchanged since the last run",
+                modifiedPoms.size(), processedPoms.size() - modifiedPoms.size(), upToDatePoms.size()));
+
         if (removeEmptyApplicationProperties != null) {
             final FileSetManager fileSetManager = new FileSetManager();
             final Path dir = Paths.get(removeEmptyApplicationProperties.getDirectory());
@@ -220,4 +379,27 @@ public class FormatPomsMojo extends AbstractMojo {
         }
 
     }
+
+    /**
+     * Resolves the given {@code pomPaths} against {@code basePath} and returns only those ones that have changed since
+     * the last run.
+     *
+     * @param basePath the directory to resolve the {@code pomPaths} against
+     * @param pomPaths the paths to resolve
+     * @param cache the {@link FormatCache} to check
+     * @param upToDatePoms a {@link Set} to add the unchanged {@code pom.xml} files to
+     * @return a {@link List} of {@code pom.xml} files that need to be processed
+     */
+    static List<Path> resolveOutdated(Path basePath, List<String> pomPaths, FormatCache cache, Set<Path> upToDatePoms) {
+        final List<Path> result = new ArrayList<>(pomPaths.size());
+        for (String pomPath : pomPaths) {
+            final Path pomXmlPath = basePath.resolve(pomPath.trim());
+            if (upToDatePoms.contains(pomXmlPath) || cache.isUpToDate(pomXmlPath)) {
+                upToDatePoms.add(pomXmlPath);
+            } else {
+                result.add(pomXmlPath);
+            }
+        }
+        return result;
+    }
 }
@@ -0,0 +1,258 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.camel.catalog.Kind;
+
+/**
+ * Assigns a primary group to Camel models based on their names and labels, as used in the files produced by
+ * {@link ExportComponentCsvMojo}. The rules are read once from a file of the format described in the default
+ * {@value #DEFAULT_RULES} resource and compiled into tries, so that {@link #classify(Kind, String, String)} does not
+ * need to split the labels or allocate anything else per model.
+ */
+public class LabelClassifier {
+
+    /** The class path resource containing the default rules */
+    public static final String DEFAULT_RULES = "/cq-primary-groups.txt";
+
+    private static final String NAME_PREFIX = "name:";
+    private static final String LABEL_PREFIX = "label:";
+
+    /** Maps name prefixes to indexes in {@link #nameGroups} */
+    private final CharTrie names;
+    private final String[] nameGroups;
+    /** Maps labels to indexes in {@link #labelGroups}; a lower index means a higher priority */
+    private final CharTrie labels;
+    private final String[] labelGroups;
+
+    LabelClassifier(CharTrie names, String[] nameGroups, CharTrie labels, String[] labelGroups) {
+        this.names = names;
+        this.nameGroups = nameGroups;
+        this.labels = labels;
+        this.labelGroups = labelGroups;
+    }
+
+    /**
+     * @return a new {@link LabelClassifier} using the rules from the {@value #DEFAULT_RULES} class path resource
+     */
+    public static LabelClassifier loadDefault() {
+        final InputStream in = LabelClassifier.class.getResourceAsStream(DEFAULT_RULES);
+        if (in == null) {
+            throw new IllegalStateException("Could not find " + DEFAULT_RULES + " in the class path");
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return parse(reader, DEFAULT_RULES);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + DEFAULT_RULES, e);
+        }
+    }
+
+    /**
+     * @param rulesFile the file to read the rules from
+     * @return a new {@link LabelClassifier} using the rules from the given {@code rulesFile}
+     */
+    public static LabelClassifier load(Path rulesFile) {
+        try (BufferedReader reader = Files.newBufferedReader(rulesFile, StandardCharsets.UTF_8)) {
+            return parse(reader, rulesFile.toString());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + rulesFile, e);
+        }
+    }
+
+    static LabelClassifier parse(BufferedReader reader, String source) throws IOException {
+        final CharTrie names = new CharTrie();
+        final List<String> nameGroups = new ArrayList<>();
+        final CharTrie labels = new CharTrie();
+        final List<String> labelGroups = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            final int eqPos = line.indexOf('=');
+            if (eqPos < 0) {
+                throw new IllegalStateException(
+                        "Expected <key> = <group> at " + source + ":" + lineNumber + "; found: " + line);
+            }
+            final String key = line.substring(0, eqPos).trim();
+            /* Interned so that all models of a group share a single instance */
+            final String group = line.substring(eqPos + 1).trim().intern();
+            if (key.startsWith(NAME_PREFIX) && key.length() > NAME_PREFIX.length()) {
+                names.putIfAbsent(key.substring(NAME_PREFIX.length()), nameGroups.size());
+                nameGroups.add(group);
+            } else if (key.startsWith(LABEL_PREFIX) && key.length() > LABEL_PREFIX.length()) {
+                labels.putIfAbsent(key.substring(LABEL_PREFIX.length()), labelGroups.size());
+                labelGroups.add(group);
+            } else {
+                throw new IllegalStateException("Expected " + NAME_PREFIX + "<prefix> or " + LABEL_PREFIX
+                        + "<label> at " + source + ":" + lineNumber + "; found: " + key);
+            }
+        }
+        return new LabelClassifier(names, nameGroups.toArray(new String[0]), labels,
+                labelGroups.toArray(new String[0]));
+    }
+
+    /**
+     * @param kind the {@link Kind} of the model
+     * @param rawLabels the comma separated labels of the model or {@code null}
+     * @param name the name of the model
+     * @return the primary group of the model; never {@code null}
+     */
+    public String classify(Kind kind, String rawLabels, String name) {
+        if (kind != Kind.component) {
+            return kind.name();
+        }
+        final int nameGroup = names.longestPrefix(name);
+        if (nameGroup >= 0) {
+            return nameGroups[nameGroup];
+        }
+        if (rawLabels != null) {
+            /* Trailing empty labels are ignored, the same way as String.split() does */
+            int end = rawLabels.length();
+            while (end > 0 && rawLabels.charAt(end - 1) == ',') {
+                end--;
+            }
+            if (end == 0) {
+                return "";
+            }
+            int bestLabelGroup = Integer.MAX_VALUE;
+            final int firstEnd = indexOf(rawLabels, ',', 0, end);
+            boolean singleLabel = true;
+            int start = 0;
+            while (true) {
+                final int labelEnd = indexOf(rawLabels, ',', start, end);
+                final int labelGroup = labels.get(rawLabels, start, labelEnd);
+                if (labelGroup >= 0 && labelGroup < bestLabelGroup) {
+                    bestLabelGroup = labelGroup;
+                }
+                if (singleLabel && start > 0
+                        && !(labelEnd - start == firstEnd && rawLabels.regionMatches(start, rawLabels, 0, firstEnd))) {
+                    singleLabel = false;
+                }
+                if (labelEnd == end) {
+                    break;
+                }
+                start = labelEnd + 1;
+            }
+            if (bestLabelGroup != Integer.MAX_VALUE) {
+                return labelGroups[bestLabelGroup];
+            } else if (singleLabel) {
+                return firstEnd == rawLabels.length() ? rawLabels : rawLabels.substring(0, firstEnd);
+            }
+        }
+        return "";
+    }
+
+    static int indexOf(String s, char ch, int start, int end) {
+        final int result = s.indexOf(ch, start);
+        return result < 0 || result > end ? end : result;
+    }
+
+    /**
+     * A minimal trie mapping {@link CharSequence}s to non-negative {@code int}s. Children are kept in sorted arrays
+     * so that lookups neither box nor allocate.
+     */
+    static class CharTrie {
+        private char[] keys = new char[0];
+        private CharTrie[] children = new CharTrie[0];
+        private int value = -1;
+
+        /**
+         * Associates the given {@code value} with the given {@code key} unless the {@code key} has a value already.
+         *
+         * @param key the key
+         * @param value the value to associate
+         */
+        void putIfAbsent(CharSequence key, int value) {
+            CharTrie node = this;
+            for (int i = 0; i < key.length(); i++) {
+                final char c = key.charAt(i);
+                int pos = Arrays.binarySearch(node.keys, c);
+                if (pos < 0) {
+                    pos = -pos - 1;
+                    final char[] newKeys = new char[node.keys.length + 1];
+                    final CharTrie[] newChildren = new CharTrie[node.children.length + 1];
+                    System.arraycopy(node.keys, 0, newKeys, 0, pos);
+                    System.arraycopy(node.children, 0, newChildren, 0, pos);
+                    newKeys[pos] = c;
+                    newChildren[pos] = new CharTrie();
+                    System.arraycopy(node.keys, pos, newKeys, pos + 1, node.keys.length - pos);
+                    System.arraycopy(node.children, pos, newChildren, pos + 1, node.children.length - pos);
+                    node.keys = newKeys;
+                    node.children = newChildren;
+                }
+                node = node.children[pos];
+            }
+            if (node.value < 0) {
+                node.value = value;
+            }
+        }
+
+        /**
+         * @param s the string to look up a subsequence of
+         * @param start the start of the subsequence, inclusive
+         * @param end the end of the subsequence, exclusive
+         * @return the value associated with the given subsequence of {@code s} or {@code -1} if there is none
+         */
+        int get(CharSequence s, int start, int end) {
+            CharTrie node = this;
+            for (int i = start; i < end && node != null; i++) {
+                node = node.child(s.charAt(i));
+            }
+            return node == null ? -1 : node.value;
+        }
+
+        /**
+         * @param s the string whose prefixes should be looked up
+         * @return the value associated with the longest key being a prefix of {@code s} or {@code -1} if there is
+         *         none
+         */
+        int longestPrefix(CharSequence s) {
+            int result = value;
+            CharTrie node = this;
+            for (int i = 0; i < s.length(); i++) {
+                node = node.child(s.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                if (node.value >= 0) {
+                    result = node.value;
+                }
+            }
+            return result;
+        }
+
+        CharTrie child(char c) {
+            final int pos = Arrays.binarySearch(keys, c);
+            return pos < 0 ? null : children[pos];
+        }
+    }
+}
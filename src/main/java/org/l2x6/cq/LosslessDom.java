@@ -0,0 +1,729 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+/**
+ * A lossless alternative to parsing a {@code pom.xml} file via an identity {@code Transformer} and serializing it back.
+ * {@link #parse(CharSequence)} tokenizes the source by hand and builds a plain W3C DOM out of it, remembering the
+ * source span and the original state of every node. {@link #serialize(Document, CharSequence, String)} then copies
+ * the source spans of the nodes that were not touched verbatim and serializes only the new and changed ones. Thus the
+ * XML declaration, whitespace inside tags, the order of attributes, entity references and comments stay exactly as
+ * they were in the source without any postprocessing.
+ * <p>
+ * Only the subset of XML occurring in {@code pom.xml} files is supported: elements, attributes, text with predefined
+ * and character entity references, comments, CDATA sections, processing instructions and a {@code DOCTYPE} without
+ * entity declarations in the prolog.
+ */
+public final class LosslessDom {
+    private static final String SOURCE_KEY = LosslessDom.class.getName() + ".source";
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = ThreadLocal.withInitial(() -> {
+        try {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            return factory.newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new RuntimeException("Could not create a DocumentBuilder", e);
+        }
+    });
+
+    private LosslessDom() {
+    }
+
+    /**
+     * @param source the XML source to parse
+     * @return a new {@link Document}
+     * @throws IllegalStateException if the {@code source} is not well-formed or uses some unsupported XML feature
+     */
+    public static Document parse(CharSequence source) {
+        final DocumentBuilder documentBuilder = DOCUMENT_BUILDER.get();
+        documentBuilder.reset();
+        final Document document = documentBuilder.newDocument();
+        final Map<Node, NodeSource> sources = new Parser(source, document).parse();
+        snapshot(document, sources);
+        return document;
+    }
+
+    /**
+     * @param document a {@link Document} created by {@link #parse(CharSequence)}, possibly modified since then
+     * @param source the source passed to {@link #parse(CharSequence)}
+     * @param eol the line separator to use for the new and changed nodes
+     * @return the serialized {@code document}
+     */
+    public static String serialize(Document document, CharSequence source, String eol) {
+        final StringBuilder out = new StringBuilder(source.length() + 1024);
+        new Serializer(source, eol, out, sources(document)).document(document);
+        return out.toString();
+    }
+
+    /**
+     * @param document a {@link Document} created by {@link #parse(CharSequence)}
+     * @return the {@link NodeSource}s of the nodes available in the {@code document} right after parsing
+     */
+    @SuppressWarnings("unchecked")
+    static Map<Node, NodeSource> sources(Document document) {
+        /*
+         * There is just one user data entry per document because Xerces keeps the user data of all nodes in a single
+         * HashMap which is way slower than an IdentityHashMap
+         */
+        return (Map<Node, NodeSource>) document.getUserData(SOURCE_KEY);
+    }
+
+    /**
+     * Records the current children and attributes of all elements so that {@link Serializer} can find out later
+     * whether they have changed.
+     *
+     * @param node the node to start at
+     * @param sources the {@link NodeSource}s as returned by {@link #sources(Document)}
+     */
+    static void snapshot(Node node, Map<Node, NodeSource> sources) {
+        final NodeSource src = sources.get(node);
+        src.children = children(node);
+        if (node.getNodeType() == Node.ELEMENT_NODE) {
+            src.value = attributes((Element) node);
+        }
+        for (Node child : src.children) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                snapshot(child, sources);
+            }
+        }
+    }
+
+    static Node[] children(Node node) {
+        int count = 0;
+        for (Node n = node.getFirstChild(); n != null; n = n.getNextSibling()) {
+            count++;
+        }
+        final Node[] result = new Node[count];
+        int i = 0;
+        for (Node n = node.getFirstChild(); n != null; n = n.getNextSibling()) {
+            result[i++] = n;
+        }
+        return result;
+    }
+
+    static String attributes(Element element) {
+        final NamedNodeMap attributes = element.getAttributes();
+        final int length = attributes.getLength();
+        if (length == 0) {
+            return "";
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            final Node attribute = attributes.item(i);
+            sb.append(attribute.getNodeName()).append('=').append(attribute.getNodeValue()).append('\u0000');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The source span of a node and its state right after parsing.
+     */
+    static class NodeSource {
+        /** The index of the first character of the node in the source */
+        final int start;
+        /** For elements, the index right after the {@code >} of the start tag, otherwise {@link #end} */
+        int startTagEnd;
+        /** For elements, the index of the {@code <} of the end tag, otherwise {@link #start} */
+        int endTagStart;
+        /** The index right after the last character of the node in the source */
+        int end;
+        /** The value of a text-like node or the attributes of an element as returned by {@link #attributes(Element)} */
+        String value;
+        /** The child nodes right after parsing */
+        Node[] children;
+
+        NodeSource(int start) {
+            this.start = start;
+            this.startTagEnd = start;
+            this.endTagStart = start;
+        }
+
+        boolean isEmptyElementTag() {
+            return startTagEnd == end;
+        }
+    }
+
+    static class Parser {
+        private final CharSequence source;
+        private final int length;
+        private final Document document;
+        private final Map<Node, NodeSource> sources = new IdentityHashMap<>();
+        private final Deque<Map<String, String>> namespaces = new ArrayDeque<>();
+        private final StringBuilder buffer = new StringBuilder();
+        private Node parent;
+        private int pos;
+
+        Parser(CharSequence source, Document document) {
+            this.source = source;
+            this.length = source.length();
+            this.document = document;
+            this.parent = document;
+            final Map<String, String> initial = new HashMap<>();
+            initial.put(XMLConstants.XML_NS_PREFIX, XMLConstants.XML_NS_URI);
+            initial.put(XMLConstants.XMLNS_ATTRIBUTE, XMLConstants.XMLNS_ATTRIBUTE_NS_URI);
+            namespaces.push(initial);
+        }
+
+        Map<Node, NodeSource> parse() {
+            final NodeSource documentSource = new NodeSource(0);
+            documentSource.end = length;
+            sources.put(document, documentSource);
+            document.setUserData(SOURCE_KEY, sources, null);
+            if (startsWith("<?xml") && length > 5 && PomSorter.isWhitespace(source.charAt(5))) {
+                /* The XML declaration is not a node; it is a part of the prolog that we copy verbatim */
+                pos = indexOf("?>", pos) + 2;
+            }
+            while (pos < length) {
+                final int start = pos;
+                if (startsWith("<!--")) {
+                    final int end = indexOf("-->", pos + 4);
+                    add(document.createComment(normalizeEol(start + 4, end)), start, end + 3);
+                } else if (startsWith("<![CDATA[")) {
+                    final int end = indexOf("]]>", pos + 9);
+                    add(document.createCDATASection(normalizeEol(start + 9, end)), start, end + 3);
+                } else if (startsWith("<!DOCTYPE")) {
+                    if (parent != document) {
+                        throw error("DOCTYPE not allowed here");
+                    }
+                    doctype();
+                } else if (startsWith("<?")) {
+                    final int end = indexOf("?>", pos + 2);
+                    int targetEnd = start + 2;
+                    while (targetEnd < end && !PomSorter.isWhitespace(source.charAt(targetEnd))) {
+                        targetEnd++;
+                    }
+                    int dataStart = targetEnd;
+                    while (dataStart < end && PomSorter.isWhitespace(source.charAt(dataStart))) {
+                        dataStart++;
+                    }
+                    final ProcessingInstruction pi = document.createProcessingInstruction(
+                            source.subSequence(start + 2, targetEnd).toString(),
+                            normalizeEol(dataStart, end));
+                    add(pi, start, end + 2);
+                } else if (startsWith("</")) {
+                    endTag();
+                } else if (source.charAt(pos) == '<') {
+                    startTag();
+                } else {
+                    text();
+                }
+            }
+            if (parent != document) {
+                throw error("Missing end tag of <" + parent.getNodeName() + ">");
+            }
+            return sources;
+        }
+
+        void doctype() {
+            /* Skip the DOCTYPE including a possible internal subset; it stays in the verbatim prolog */
+            int depth = 0;
+            for (int i = pos; i < length; i++) {
+                switch (source.charAt(i)) {
+                case '[':
+                    depth++;
+                    break;
+                case ']':
+                    depth--;
+                    break;
+                case '>':
+                    if (depth == 0) {
+                        pos = i + 1;
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+                }
+            }
+            throw error("Unterminated DOCTYPE");
+        }
+
+        void startTag() {
+            final int start = pos;
+            pos++;
+            final String qName = name();
+            final Map<String, String> scope = new HashMap<>(namespaces.peek());
+            /* attribute qNames and values in the order of their occurrence */
+            final List<String> attributes = new ArrayList<>();
+            boolean emptyElementTag = false;
+            while (true) {
+                skipWhitespace();
+                if (pos >= length) {
+                    throw error("Unterminated start tag <" + qName + ">");
+                }
+                final char c = source.charAt(pos);
+                if (c == '>') {
+                    pos++;
+                    break;
+                } else if (c == '/' && startsWith("/>")) {
+                    pos += 2;
+                    emptyElementTag = true;
+                    break;
+                }
+                final String attributeName = name();
+                skipWhitespace();
+                expect('=');
+                skipWhitespace();
+                final char quote = pos < length ? source.charAt(pos) : 0;
+                if (quote != '"' && quote != '\'') {
+                    throw error("Expected a quoted value of attribute " + attributeName);
+                }
+                final int valueEnd = indexOf(quote, pos + 1);
+                final String value = decode(pos + 1, valueEnd, true);
+                pos = valueEnd + 1;
+                if (attributeName.equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+                    scope.put("", value);
+                } else if (attributeName.startsWith(XMLConstants.XMLNS_ATTRIBUTE + ":")) {
+                    scope.put(attributeName.substring(XMLConstants.XMLNS_ATTRIBUTE.length() + 1), value);
+                }
+                attributes.add(attributeName);
+                attributes.add(value);
+            }
+            final Element element = document.createElementNS(namespaceUri(scope, qName, true), qName);
+            for (int i = 0; i < attributes.size(); i += 2) {
+                final String attributeName = attributes.get(i);
+                final String namespaceUri = attributeName.equals(XMLConstants.XMLNS_ATTRIBUTE)
+                        ? XMLConstants.XMLNS_ATTRIBUTE_NS_URI
+                        : namespaceUri(scope, attributeName, false);
+                element.setAttributeNS(namespaceUri, attributeName, attributes.get(i + 1));
+            }
+            final NodeSource src = add(element, start, pos);
+            src.startTagEnd = pos;
+            if (!emptyElementTag) {
+                namespaces.push(scope);
+                parent = element;
+            }
+        }
+
+        void endTag() {
+            final int start = pos;
+            pos += 2;
+            final String qName = name();
+            skipWhitespace();
+            expect('>');
+            if (parent == document || !parent.getNodeName().equals(qName)) {
+                throw error("Unexpected end tag </" + qName + ">");
+            }
+            final NodeSource src = sources.get(parent);
+            src.endTagStart = start;
+            src.end = pos;
+            namespaces.pop();
+            parent = parent.getParentNode();
+        }
+
+        void text() {
+            final int start = pos;
+            int end = indexOf('<', pos);
+            if (end < 0) {
+                end = length;
+            }
+            if (parent == document) {
+                for (int i = start; i < end; i++) {
+                    if (!PomSorter.isWhitespace(source.charAt(i))) {
+                        throw error("Text not allowed outside of the root element");
+                    }
+                }
+                /* Whitespace in the prolog and epilog is copied verbatim */
+                pos = end;
+                return;
+            }
+            final String value = decode(start, end, false);
+            pos = start;
+            add(document.createTextNode(value), start, end);
+        }
+
+        NodeSource add(Node node, int start, int end) {
+            final NodeSource src = new NodeSource(start);
+            src.end = end;
+            if (node.getNodeType() != Node.ELEMENT_NODE) {
+                src.value = node.getNodeValue();
+            }
+            sources.put(node, src);
+            parent.appendChild(node);
+            pos = end;
+            return src;
+        }
+
+        String namespaceUri(Map<String, String> scope, String qName, boolean isElement) {
+            final int colonPos = qName.indexOf(':');
+            if (colonPos < 0) {
+                /* The default namespace does not apply to attributes */
+                return isElement ? scope.get("") : null;
+            }
+            final String prefix = qName.substring(0, colonPos);
+            final String result = scope.get(prefix);
+            if (result == null) {
+                throw error("Unbound namespace prefix " + prefix);
+            }
+            return result;
+        }
+
+        String name() {
+            final int start = pos;
+            while (pos < length) {
+                final char c = source.charAt(pos);
+                if (PomSorter.isWhitespace(c) || c == '>' || c == '/' || c == '=' || c == '<') {
+                    break;
+                }
+                pos++;
+            }
+            if (pos == start) {
+                throw error("Expected a name");
+            }
+            return source.subSequence(start, pos).toString();
+        }
+
+        /**
+         * Resolves the entity references, normalizes line ends and, in attribute values, whitespace in the same way
+         * as an XML parser does.
+         */
+        String decode(int start, int end, boolean attribute) {
+            buffer.setLength(0);
+            int i = start;
+            while (i < end) {
+                final char c = source.charAt(i);
+                switch (c) {
+                case '&':
+                    final int semicolon = indexOf(';', i + 1);
+                    if (semicolon < 0 || semicolon > end) {
+                        throw error("Unterminated entity reference");
+                    }
+                    appendEntity(source.subSequence(i + 1, semicolon).toString());
+                    i = semicolon + 1;
+                    break;
+                case '\r':
+                    buffer.append(attribute ? ' ' : '\n');
+                    i += i + 1 < end && source.charAt(i + 1) == '\n' ? 2 : 1;
+                    break;
+                case '\n':
+                case '\t':
+                    buffer.append(attribute ? ' ' : c);
+                    i++;
+                    break;
+                default:
+                    buffer.append(c);
+                    i++;
+                    break;
+                }
+            }
+            return buffer.toString();
+        }
+
+        void appendEntity(String name) {
+            switch (name) {
+            case "lt":
+                buffer.append('<');
+                break;
+            case "gt":
+                buffer.append('>');
+                break;
+            case "amp":
+                buffer.append('&');
+                break;
+            case "quot":
+                buffer.append('"');
+                break;
+            case "apos":
+                buffer.append('\'');
+                break;
+            default:
+                if (name.startsWith("#")) {
+                    try {
+                        buffer.appendCodePoint(name.startsWith("#x")
+                                ? Integer.parseInt(name.substring(2), 16)
+                                : Integer.parseInt(name.substring(1)));
+                    } catch (IllegalArgumentException e) {
+                        /* NumberFormatException or a code point out of range */
+                        throw error("Invalid character reference &" + name + ";");
+                    }
+                } else {
+                    throw error("Unsupported entity reference &" + name + ";");
+                }
+                break;
+            }
+        }
+
+        String normalizeEol(int start, int end) {
+            final String result = source.subSequence(start, end).toString();
+            return result.indexOf('\r') >= 0 ? result.replace("\r\n", "\n").replace('\r', '\n') : result;
+        }
+
+        void skipWhitespace() {
+            while (pos < length && PomSorter.isWhitespace(source.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        void expect(char expected) {
+            if (pos >= length || source.charAt(pos) != expected) {
+                throw error("Expected '" + expected + "'");
+            }
+            pos++;
+        }
+
+        boolean startsWith(String prefix) {
+            return PomSorter.startsWith(source, prefix, pos);
+        }
+
+        int indexOf(String needle, int fromIndex) {
+            final int result = PomSorter.indexOf(source, needle, fromIndex);
+            if (result < 0) {
+                throw error("Could not find " + needle);
+            }
+            return result;
+        }
+
+        int indexOf(char needle, int fromIndex) {
+            return PomSorter.indexOf(source, needle, fromIndex);
+        }
+
+        IllegalStateException error(String message) {
+            int line = 1;
+            for (int i = 0; i < pos && i < length; i++) {
+                if (source.charAt(i) == '\n') {
+                    line++;
+                }
+            }
+            return new IllegalStateException(message + " on line " + line);
+        }
+    }
+
+    static class Serializer {
+        private final CharSequence source;
+        private final String eol;
+        private final StringBuilder out;
+        private final Map<Node, NodeSource> sources;
+
+        Serializer(CharSequence source, String eol, StringBuilder out, Map<Node, NodeSource> sources) {
+            this.source = source;
+            this.eol = eol;
+            this.out = out;
+            this.sources = sources;
+        }
+
+        void document(Document document) {
+            final NodeSource src = sources.get(document);
+            final Node[] children = children(document);
+            if (sameNodes(children, src.children)) {
+                /* Keep the prolog, the whitespace between the top level nodes and the epilog */
+                int pos = 0;
+                for (Node child : children) {
+                    final NodeSource childSrc = sources.get(child);
+                    out.append(source, pos, childSrc.start);
+                    node(child);
+                    pos = childSrc.end;
+                }
+                out.append(source, pos, source.length());
+            } else {
+                final int prologEnd = src.children.length > 0 ? sources.get(src.children[0]).start : 0;
+                out.append(source, 0, prologEnd);
+                for (int i = 0; i < children.length; i++) {
+                    if (i > 0) {
+                        out.append(eol);
+                    }
+                    node(children[i]);
+                }
+                if (PomSorter.isWhitespace(source.length() > 0 ? source.charAt(source.length() - 1) : 'x')) {
+                    out.append(eol);
+                }
+            }
+        }
+
+        void node(Node node) {
+            final NodeSource src = sources.get(node);
+            switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                element((Element) node, src);
+                break;
+            case Node.TEXT_NODE:
+                if (src != null && node.getNodeValue().equals(src.value)) {
+                    out.append(source, src.start, src.end);
+                } else {
+                    escape(node.getNodeValue(), false);
+                }
+                break;
+            case Node.COMMENT_NODE:
+                textLike(node, src, "<!--", "-->");
+                break;
+            case Node.CDATA_SECTION_NODE:
+                textLike(node, src, "<![CDATA[", "]]>");
+                break;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                if (src != null && node.getNodeValue().equals(src.value)) {
+                    out.append(source, src.start, src.end);
+                } else {
+                    out.append("<?").append(node.getNodeName()).append(' ');
+                    appendEol(node.getNodeValue());
+                    out.append("?>");
+                }
+                break;
+            case Node.ENTITY_REFERENCE_NODE:
+                out.append('&').append(node.getNodeName()).append(';');
+                break;
+            default:
+                throw new IllegalStateException("Unexpected node type " + node.getNodeType());
+            }
+        }
+
+        void textLike(Node node, NodeSource src, String prefix, String suffix) {
+            if (src != null && node.getNodeValue().equals(src.value)) {
+                out.append(source, src.start, src.end);
+            } else {
+                out.append(prefix);
+                appendEol(node.getNodeValue());
+                out.append(suffix);
+            }
+        }
+
+        void element(Element element, NodeSource src) {
+            if (src != null && isUnchanged(element, src)) {
+                out.append(source, src.start, src.end);
+                return;
+            }
+            final boolean hasChildren = element.getFirstChild() != null;
+            if (src != null && attributes(element).equals(src.value)) {
+                if (src.isEmptyElementTag()) {
+                    if (!hasChildren) {
+                        out.append(source, src.start, src.end);
+                        return;
+                    }
+                    /* Turn <foo/> into <foo> */
+                    int end = src.startTagEnd - 2;
+                    while (PomSorter.isWhitespace(source.charAt(end - 1))) {
+                        end--;
+                    }
+                    out.append(source, src.start, end).append('>');
+                } else {
+                    out.append(source, src.start, src.startTagEnd);
+                }
+            } else {
+                out.append('<').append(element.getNodeName());
+                final NamedNodeMap attributes = element.getAttributes();
+                for (int i = 0; i < attributes.getLength(); i++) {
+                    final Node attribute = attributes.item(i);
+                    out.append(' ').append(attribute.getNodeName()).append("=\"");
+                    escape(attribute.getNodeValue(), true);
+                    out.append('"');
+                }
+                if (!hasChildren && (src == null || src.isEmptyElementTag())) {
+                    out.append("/>");
+                    return;
+                }
+                out.append('>');
+            }
+            for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+                node(child);
+            }
+            if (src != null && !src.isEmptyElementTag()) {
+                out.append(source, src.endTagStart, src.end);
+            } else {
+                out.append("</").append(element.getNodeName()).append('>');
+            }
+        }
+
+        boolean isUnchanged(Element element, NodeSource src) {
+            if (!attributes(element).equals(src.value)) {
+                return false;
+            }
+            int i = 0;
+            for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (i >= src.children.length || src.children[i++] != child) {
+                    return false;
+                }
+                final NodeSource childSrc = sources.get(child);
+                if (child.getNodeType() == Node.ELEMENT_NODE) {
+                    if (!isUnchanged((Element) child, childSrc)) {
+                        return false;
+                    }
+                } else if (child.getNodeType() != Node.ENTITY_REFERENCE_NODE
+                        && !child.getNodeValue().equals(childSrc.value)) {
+                    return false;
+                }
+            }
+            return i == src.children.length;
+        }
+
+        boolean sameNodes(Node[] current, Node[] original) {
+            if (current.length != original.length) {
+                return false;
+            }
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] != original[i] || sources.get(current[i]) == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void escape(String value, boolean attribute) {
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                switch (c) {
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append("&gt;");
+                    break;
+                case '"':
+                    out.append(attribute ? "&quot;" : "\"");
+                    break;
+                case '\n':
+                    out.append(attribute ? "&#10;" : eol);
+                    break;
+                default:
+                    out.append(c);
+                    break;
+                }
+            }
+        }
+
+        void appendEol(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                if (c == '\n') {
+                    out.append(eol);
+                } else {
+                    out.append(c);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A lightweight read-only query over a {@code pom.xml} file: unlike {@link CqUtils#readPom(Path, Charset)} it builds
+ * no Maven {@code Model} and it stops reading the file as soon as all requested elements were found.
+ * <p>
+ * Elements are selected by slash separated paths of local names starting with the root element, such as
+ * {@code project/name}. The last segment of a path passed to {@link Builder#values(String)} can be {@code *} to
+ * select all child elements regardless of their name, e.g. {@code project/properties/*}. Values are the trimmed text
+ * content of the selected elements, the same as {@code MavenXpp3Reader} would return them.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * final PomQuery pom = PomQuery.builder()
+ *         .value("project/name")
+ *         .values("project/properties/*")
+ *         .read(pomXmlPath, StandardCharsets.UTF_8);
+ * final String name = pom.getValue("project/name");
+ * final Map&lt;String, String&gt; props = pom.getValueMap("project/properties/*");
+ * </pre>
+ */
+public class PomQuery {
+    /** Creating an XMLInputFactory involves a service lookup; the factory is not guaranteed to be thread safe */
+    private static final ThreadLocal<XMLInputFactory> XML_INPUT_FACTORY = ThreadLocal.withInitial(() -> {
+        final XMLInputFactory result = XMLInputFactory.newInstance();
+        result.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        result.setProperty(XMLInputFactory.IS_COALESCING, true);
+        result.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        result.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return result;
+    });
+
+    private final Map<String, List<Entry<String, String>>> results;
+
+    PomQuery(Map<String, List<Entry<String, String>>> results) {
+        this.results = results;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param path a path passed to {@link Builder#value(String)} or {@link Builder#values(String)}
+     * @return the value of the first element matching the given {@code path} or {@code null} if there is no such
+     *         element
+     */
+    public String getValue(String path) {
+        final List<Entry<String, String>> matches = matches(path);
+        return matches.isEmpty() ? null : matches.get(0).getValue();
+    }
+
+    /**
+     * @param path a path passed to {@link Builder#values(String)}
+     * @return the values of all elements matching the given {@code path} in document order; an empty {@link List} if
+     *         there is no such element
+     */
+    public List<String> getValues(String path) {
+        final List<Entry<String, String>> matches = matches(path);
+        final List<String> result = new ArrayList<>(matches.size());
+        for (Entry<String, String> match : matches) {
+            result.add(match.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * @param path a path passed to {@link Builder#values(String)}, typically ending with {@code *}
+     * @return a {@link Map} from the local names to the values of all elements matching the given {@code path} in
+     *         document order; the last one wins if some local name occurs multiple times
+     */
+    public Map<String, String> getValueMap(String path) {
+        final List<Entry<String, String>> matches = matches(path);
+        final Map<String, String> result = new LinkedHashMap<>();
+        for (Entry<String, String> match : matches) {
+            result.put(match.getKey(), match.getValue());
+        }
+        return result;
+    }
+
+    List<Entry<String, String>> matches(String path) {
+        final List<Entry<String, String>> result = results.get(path);
+        if (result == null) {
+            throw new IllegalStateException("Path " + path + " was not queried; queried paths: " + results.keySet());
+        }
+        return result;
+    }
+
+    public static class Builder {
+        private final List<Selector> selectors = new ArrayList<>();
+
+        /**
+         * Select the first element under the given {@code path}; reading of the file can stop once the end tag of the
+         * selected element is reached.
+         *
+         * @param path a slash separated path of element names starting with the root element, e.g.
+         *        {@code project/name}
+         * @return this {@link Builder}
+         */
+        public Builder value(String path) {
+            selectors.add(new Selector(path, false));
+            return this;
+        }
+
+        /**
+         * Select all elements under the given {@code path}; reading of the file can stop once the end tag of the
+         * parent of the selected elements is reached.
+         *
+         * @param path a slash separated path of element names starting with the root element, e.g.
+         *        {@code project/modules/module}; the last segment can be {@code *}
+         * @return this {@link Builder}
+         */
+        public Builder values(String path) {
+            selectors.add(new Selector(path, true));
+            return this;
+        }
+
+        /**
+         * @param path the {@code pom.xml} file to read
+         * @param charset the encoding of the {@code pom.xml} file
+         * @return a new {@link PomQuery}
+         */
+        public PomQuery read(Path path, Charset charset) {
+            try (Reader reader = Files.newBufferedReader(path, charset)) {
+                return read(reader);
+            } catch (IOException | XMLStreamException e) {
+                throw new RuntimeException("Could not parse " + path, e);
+            }
+        }
+
+        PomQuery read(Reader reader) throws XMLStreamException {
+            final Map<String, List<Entry<String, String>>> results = new LinkedHashMap<>();
+            for (Selector selector : selectors) {
+                results.put(selector.path, new ArrayList<>());
+            }
+            final XMLStreamReader xml = XML_INPUT_FACTORY.get().createXMLStreamReader(reader);
+            try {
+                final List<String> stack = new ArrayList<>();
+                final boolean[] done = new boolean[selectors.size()];
+                int pending = selectors.size();
+                /* The selector whose element we are collecting the text of, if any and the depth of that element */
+                Selector collecting = null;
+                int collectingDepth = -1;
+                final StringBuilder text = new StringBuilder();
+                while (pending > 0 && xml.hasNext()) {
+                    switch (xml.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        stack.add(xml.getLocalName());
+                        if (collecting == null) {
+                            for (int i = 0; i < done.length; i++) {
+                                if (!done[i] && selectors.get(i).matches(stack)) {
+                                    collecting = selectors.get(i);
+                                    collectingDepth = stack.size();
+                                    text.setLength(0);
+                                    break;
+                                }
+                            }
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if (collecting != null) {
+                            text.append(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (collecting != null && stack.size() == collectingDepth) {
+                            final String name = stack.get(stack.size() - 1);
+                            final String value = text.toString().trim();
+                            for (int i = 0; i < done.length; i++) {
+                                /* There may be multiple selectors for the same element */
+                                final Selector selector = selectors.get(i);
+                                if (!done[i] && selector.matches(stack)) {
+                                    results.get(selector.path).add(new SimpleImmutableEntry<>(name, value));
+                                    if (!selector.multiple) {
+                                        done[i] = true;
+                                        pending--;
+                                    }
+                                }
+                            }
+                            collecting = null;
+                        }
+                        for (int i = 0; i < done.length; i++) {
+                            final Selector selector = selectors.get(i);
+                            if (!done[i] && selector.multiple && selector.isParent(stack)) {
+                                /* The siblings we are interested in cannot occur anywhere else in a POM */
+                                done[i] = true;
+                                pending--;
+                            }
+                        }
+                        stack.remove(stack.size() - 1);
+                        break;
+                    default:
+                        break;
+                    }
+                }
+            } finally {
+                xml.close();
+            }
+            for (Entry<String, List<Entry<String, String>>> e : results.entrySet()) {
+                e.setValue(Collections.unmodifiableList(e.getValue()));
+            }
+            return new PomQuery(results);
+        }
+    }
+
+    static class Selector {
+        private final String path;
+        private final String[] segments;
+        private final boolean multiple;
+
+        Selector(String path, boolean multiple) {
+            this.path = path;
+            this.segments = path.split("/");
+            this.multiple = multiple;
+        }
+
+        boolean matches(List<String> stack) {
+            if (stack.size() != segments.length) {
+                return false;
+            }
+            for (int i = 0; i < segments.length; i++) {
+                final String segment = segments[i];
+                if (!(segment.equals(stack.get(i)) || (i == segments.length - 1 && "*".equals(segment)))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isParent(List<String> stack) {
+            if (stack.size() != segments.length - 1) {
+                return false;
+            }
+            for (int i = 0; i < stack.size(); i++) {
+                if (!segments[i].equals(stack.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
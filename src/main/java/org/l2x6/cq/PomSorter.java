@@ -18,6 +18,7 @@ package org.l2x6.cq;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 
@@ -46,21 +47,25 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.xml.namespace.QName;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.TransformerFactoryConfigurationError;
 import javax.xml.transform.dom.DOMResult;
 import javax.xml.transform.stream.StreamSource;
@@ -81,76 +86,188 @@ public class PomSorter {
             new ExtensionDir("extensions-support", "camel-quarkus-support-"),
             new ExtensionDir("integration-tests/support", "camel-quarkus-integration-test-support-")));
 
+    /** Only elements occurring after a comment containing this marker string will be sorted */
+    static final String SORT_MARKER = "a..z";
+    /** The groupIds of managed dependencies that are placed first, each of them preceded by a generated comment */
+    static final List<String> DEPENDENCY_GROUP_IDS = Collections.unmodifiableList(Arrays.asList(
+            "org.apache.camel",
+            "org.apache.camel.quarkus"));
+    /** The generated comment preceding the managed dependencies having a groupId not listed in {@link #DEPENDENCY_GROUP_IDS} */
+    static final String OTHER_DEPENDENCIES_COMMENT = "Other third party dependencies";
+
+    static final Pattern GENERATED_COMMENT_PATTERN = Pattern.compile("<!--\\$[^>]*\\$-->");
+    private static final String GENERATED_COMMENT_START = "<!--$";
+    private static final String GENERATED_COMMENT_END = "$-->";
+    private static final Pattern TAG_PATTERN = Pattern.compile("<[^>]+>");
+    private static final String DEPENDENCY_END_TAG = "</dependency>";
+    private static final String GROUP_ID_START_TAG = "<groupId>";
+    private static final String GROUP_ID_END_TAG = "</groupId>";
+    /**
+     * The span of managed dependencies sorted by {@link #sortDependencyManagement(String, Path)} in terms of a regular
+     * expression; see {@link SortSpan#find(String)}
+     */
+    private static final String DEPENDENCY_MANAGEMENT_SORT_SPAN = "(a\\.\\.z[^>]*>)(.*)</dependencies>(\\r?\\n)([ ]*)</dependencyManagement>";
+    private static final String DEPENDENCIES_END_TAG = "</dependencies>";
+    private static final String DEPENDENCY_MANAGEMENT_END_TAG = "</dependencyManagement>";
+
     public static void sortDependencyManagement(Path baseDir, List<String> pomPaths) {
-        for (String pomPath : pomPaths) {
-            final Path pomXmlPath = baseDir.resolve(pomPath.trim());
-            sortDependencyManagement(pomXmlPath);
-        }
+        sort(resolve(baseDir, pomPaths), Collections.emptyList(), DependencyGroupOrder.DEFAULT, 1, false);
     }
 
-    public static void sortDependencyManagement(final Path pomXmlPath) {
-        final String xmlSource = read(pomXmlPath);
-
-        final Pattern sortSpanPattern = Pattern
-                .compile("(a\\.\\.z[^>]*>)(.*)</dependencies>(\\r?\\n)([ ]*)</dependencyManagement>", Pattern.DOTALL);
-        final Pattern groupIdPattern = Pattern.compile("<groupId>([^<]+)</groupId>");
+    public static boolean sortDependencyManagement(final Path pomXmlPath) {
+        return sortDependencyManagement(pomXmlPath, false);
+    }
 
-        final Matcher matcher = sortSpanPattern.matcher(xmlSource);
-        if (matcher.find()) {
-            String dependenciesString = matcher.group(2);
-            final String eol = matcher.group(3);
-            final String indent = matcher.group(4);
+    /**
+     * Sorts the {@code <dependencyManagement>} dependencies in the given {@code pom.xml} file.
+     *
+     * @param pomXmlPath the {@code pom.xml} file to sort
+     * @param atomicWrite see {@link CqUtils#write(Path, byte[], boolean)}
+     * @return {@code true} if the file was changed; {@code false} otherwise
+     */
+    public static boolean sortDependencyManagement(final Path pomXmlPath, boolean atomicWrite) {
+        return sortDependencyManagement(pomXmlPath, DependencyGroupOrder.DEFAULT, atomicWrite);
+    }
 
-            dependenciesString = dependenciesString.replaceAll("<!--\\$[^>]*\\$-->", "");
-            final String[] dependenciesArray = dependenciesString.split("</dependency>");
-            /* Sort by adding to a TreeMap */
-            final Map<String, Map<String, String>> sortedDeps = new TreeMap<>();
-            for (String dep : dependenciesArray) {
-                dep = dep.trim();
-                if (!dep.isEmpty()) {
-                    String key = dep
-                            .replaceAll(">[ \n\r\t]+", ">")
-                            .replaceAll("[ \n\r\t]+<", "<");
-                    final Matcher gMatcher = groupIdPattern.matcher(key);
-                    gMatcher.find();
-                    final String groupId = gMatcher.group(1);
-                    key = key.replaceAll("<[^>]+>", " ").replaceAll(" +", " ");
-
-                    Map<String, String> groupMap = sortedDeps.get(groupId);
-                    if (groupMap == null) {
-                        groupMap = new TreeMap<String, String>();
-                        sortedDeps.put(groupId, groupMap);
-                    }
-                    groupMap.put(key, dep);
-                }
-            }
-            final StringBuilder result = new StringBuilder(xmlSource);
-            result.setLength(matcher.end(1));
+    /**
+     * Sorts the {@code <dependencyManagement>} dependencies in the given {@code pom.xml} file.
+     *
+     * @param pomXmlPath the {@code pom.xml} file to sort
+     * @param groupOrder the order of the dependency groups and their comments
+     * @param atomicWrite see {@link CqUtils#write(Path, byte[], boolean)}
+     * @return {@code true} if the file was changed; {@code false} otherwise
+     */
+    public static boolean sortDependencyManagement(final Path pomXmlPath, DependencyGroupOrder groupOrder,
+            boolean atomicWrite) {
+        final CharSequence xmlSource = read(pomXmlPath);
+        return write(pomXmlPath, xmlSource, sortDependencyManagement(xmlSource, pomXmlPath, groupOrder), atomicWrite);
+    }
 
-            final Appender appender = new Appender(eol, indent, sortedDeps, result);
+    static String sortDependencyManagement(final CharSequence xmlSource, final Path pomXmlPath) {
+        return sortDependencyManagement(xmlSource, pomXmlPath, DependencyGroupOrder.DEFAULT);
+    }
 
-            appender.appendGroup("org.apache.camel", true);
-            appender.appendGroup("org.apache.camel.quarkus", true);
+    /**
+     * @param xmlSource the content of a {@code pom.xml} file
+     * @param pomXmlPath the path the {@code xmlSource} comes from, used only in error messages
+     * @param groupOrder the order of the dependency groups and their comments
+     * @return the given {@code xmlSource} with sorted {@code <dependencyManagement>} dependencies
+     */
+    static String sortDependencyManagement(final CharSequence xmlSource, final Path pomXmlPath,
+            DependencyGroupOrder groupOrder) {
+        final SortSpan span = SortSpan.find(xmlSource);
+        if (span == null) {
+            throw new RuntimeException("Could not match " + DEPENDENCY_MANAGEMENT_SORT_SPAN + " in " + pomXmlPath);
+        }
+        final StringBuilder dependencies = removeGeneratedComments(xmlSource, span.dependenciesStart,
+                span.dependenciesEnd);
+
+        /* Sort by adding to a TreeMap; the values are views of the dependencies buffer rather than copies */
+        final Map<SortKey, CharSequence> sortedDeps = new TreeMap<>();
+        final StringBuilder normalizedDep = new StringBuilder();
+        final int length = dependencies.length();
+        int start = 0;
+        while (start < length) {
+            int end = dependencies.indexOf(DEPENDENCY_END_TAG, start);
+            if (end < 0) {
+                end = length;
+            }
+            /* trim the same way as String.trim() does */
+            int depStart = start;
+            int depEnd = end;
+            while (depStart < depEnd && dependencies.charAt(depStart) <= ' ') {
+                depStart++;
+            }
+            while (depEnd > depStart && dependencies.charAt(depEnd - 1) <= ' ') {
+                depEnd--;
+            }
+            if (depStart < depEnd) {
+                normalizedDep.setLength(0);
+                normalizeWhitespace(dependencies, depStart, depEnd, normalizedDep);
+                final SortKey key = groupOrder.sortKey(dependencyGroupId(normalizedDep), dependencyKey(normalizedDep));
+                sortedDeps.put(key, CharBuffer.wrap(dependencies, depStart, depEnd));
+            }
+            start = end + DEPENDENCY_END_TAG.length();
+        }
+        final StringBuilder result = new StringBuilder(xmlSource.length() + 256)
+                .append(xmlSource, 0, span.dependenciesStart);
+
+        final String eol = span.eol;
+        final String depIndent = span.indent + span.indent + span.indent;
+        int lastGroupRank = -1;
+        for (Entry<SortKey, CharSequence> dep : sortedDeps.entrySet()) {
+            final int groupRank = dep.getKey().groupRank;
+            if (groupRank != lastGroupRank) {
+                result.append(eol).append(eol)
+                        .append(depIndent).append("<!--$ ").append(groupOrder.comment(groupRank)).append(" $-->");
+                lastGroupRank = groupRank;
+            }
+            result.append(eol)
+                    .append(depIndent).append(dep.getValue())
+                    .append(eol).append(depIndent).append(DEPENDENCY_END_TAG);
+        }
+        result
+                .append(span.eol).append(span.indent).append(span.indent)
+                .append(xmlSource, span.dependenciesEnd, xmlSource.length());
 
-            appender.appendOther();
-            appender.result().append(eol).append(indent).append(indent).append(xmlSource.substring(matcher.end(2)));
+        return result.toString();
+    }
 
-            write(pomXmlPath, result.toString());
-        } else {
-            throw new RuntimeException("Could not match " + sortSpanPattern + " in " + pomXmlPath);
+    /**
+     * @param xmlSource the source to copy from
+     * @param start the start index in {@code xmlSource}, inclusive
+     * @param end the end index in {@code xmlSource}, exclusive
+     * @return a new {@link StringBuilder} containing the given range of {@code xmlSource} without the comments
+     *         matching {@link #GENERATED_COMMENT_PATTERN}
+     */
+    static StringBuilder removeGeneratedComments(CharSequence xmlSource, int start, int end) {
+        final StringBuilder result = new StringBuilder(end - start);
+        int copyFrom = start;
+        int searchFrom = start;
+        int commentStart;
+        while ((commentStart = indexOf(xmlSource, GENERATED_COMMENT_START, searchFrom)) >= 0
+                && commentStart + GENERATED_COMMENT_START.length() <= end) {
+            final int contentStart = commentStart + GENERATED_COMMENT_START.length();
+            final int gt = indexOf(xmlSource, '>', contentStart);
+            final int commentEndStart = gt - GENERATED_COMMENT_END.length() + 1;
+            if (gt >= 0 && gt < end && commentEndStart >= contentStart
+                    && startsWith(xmlSource, GENERATED_COMMENT_END, commentEndStart)) {
+                result.append(xmlSource, copyFrom, commentStart);
+                copyFrom = gt + 1;
+                searchFrom = gt + 1;
+            } else {
+                searchFrom = commentStart + 1;
+            }
         }
+        return result.append(xmlSource, copyFrom, end);
     }
 
     public static void sortModules(Path baseDir, List<String> sortModulesPaths) {
-        for (String pomPath : sortModulesPaths) {
-            final Path pomXmlPath = baseDir.resolve(pomPath.trim());
-            sortModules(pomXmlPath);
-        }
+        sort(Collections.emptyList(), resolve(baseDir, sortModulesPaths), DependencyGroupOrder.DEFAULT, 1, false);
     }
 
-    public static void sortModules(final Path pomXmlPath) {
-        final String xmlSource = read(pomXmlPath);
+    public static boolean sortModules(final Path pomXmlPath) {
+        return sortModules(pomXmlPath, false);
+    }
+
+    /**
+     * Sorts the {@code <module>} elements in the given {@code pom.xml} file.
+     *
+     * @param pomXmlPath the {@code pom.xml} file to sort
+     * @param atomicWrite see {@link CqUtils#write(Path, byte[], boolean)}
+     * @return {@code true} if the file was changed; {@code false} otherwise
+     */
+    public static boolean sortModules(final Path pomXmlPath, boolean atomicWrite) {
+        final CharSequence xmlSource = read(pomXmlPath);
+        return write(pomXmlPath, xmlSource, sortModules(xmlSource, pomXmlPath), atomicWrite);
+    }
 
+    /**
+     * @param xmlSource the content of a {@code pom.xml} file
+     * @param pomXmlPath the path the {@code xmlSource} comes from, used only in error messages
+     * @return the given {@code xmlSource} with sorted {@code <module>} elements
+     */
+    static String sortModules(final CharSequence xmlSource, final Path pomXmlPath) {
         final Pattern sortSpanPattern = Pattern.compile("(a\\.\\.z[^>]*>)(.*)(\\r?\\n)([ ]*)</modules>", Pattern.DOTALL);
 
         final Matcher matcher = sortSpanPattern.matcher(xmlSource);
@@ -163,10 +280,7 @@ public class PomSorter {
             for (String module : modulesArray) {
                 module = module.trim();
                 if (!module.isEmpty()) {
-                    String key = module
-                            .replaceAll(">[ \n\r\t]+", ">")
-                            .replaceAll("[ \n\r\t]+<", "<");
-                    key = key.replaceAll("<[^>]+>", "");
+                    final String key = moduleKey(normalizeWhitespace(module));
                     if (!key.isEmpty()) {
                         sortedModules.put(key, module);
                     }
@@ -178,14 +292,215 @@ public class PomSorter {
             for (String module : sortedModules.values()) {
                 result.append(eol).append(indent).append(indent).append(module);
             }
-            result.append(eol).append(indent).append(xmlSource.substring(matcher.end(4)));
+            result.append(eol).append(indent).append(xmlSource, matcher.end(4), xmlSource.length());
 
-            write(pomXmlPath, result.toString());
+            return result.toString();
         } else {
             throw new RuntimeException("Could not match " + sortSpanPattern + " in " + pomXmlPath);
         }
     }
 
+    /**
+     * Sorts the managed dependencies and the modules in the given {@code pom.xml} files concurrently. A file listed in
+     * both {@code dependencyManagementPoms} and {@code modulesPoms} is processed by a single task so that it is never
+     * written by two threads at once.
+     *
+     * @param dependencyManagementPoms the {@code pom.xml} files whose managed dependencies should be sorted
+     * @param modulesPoms the {@code pom.xml} files whose modules should be sorted
+     * @param groupOrder the order of the dependency groups and their comments
+     * @param threads the number of threads to use; values {@code <= 0} stand for
+     *        {@link Runtime#availableProcessors()}
+     * @param atomicWrite see {@link CqUtils#write(Path, byte[], boolean)}
+     * @return a {@link SortSummary}
+     */
+    public static SortSummary sort(
+            Collection<Path> dependencyManagementPoms,
+            Collection<Path> modulesPoms,
+            DependencyGroupOrder groupOrder,
+            int threads,
+            boolean atomicWrite) {
+        final Set<Path> sortDependencyManagement = new HashSet<>(dependencyManagementPoms);
+        final Set<Path> sortModules = new HashSet<>(modulesPoms);
+        final Set<Path> allPoms = new LinkedHashSet<>(dependencyManagementPoms);
+        allPoms.addAll(modulesPoms);
+
+        final long start = System.nanoTime();
+        final List<SortResult> results = CqUtils.mapParallel(threads, new ArrayList<>(allPoms), pomXmlPath -> {
+            final long pomStart = System.nanoTime();
+            boolean modified = false;
+            if (sortDependencyManagement.contains(pomXmlPath)) {
+                modified |= sortDependencyManagement(pomXmlPath, groupOrder, atomicWrite);
+            }
+            if (sortModules.contains(pomXmlPath)) {
+                modified |= sortModules(pomXmlPath, atomicWrite);
+            }
+            return new SortResult(pomXmlPath, modified, System.nanoTime() - pomStart);
+        });
+        return new SortSummary(results, System.nanoTime() - start);
+    }
+
+    static List<Path> resolve(Path baseDir, List<String> pomPaths) {
+        return pomPaths.stream()
+                .map(pomPath -> baseDir.resolve(pomPath.trim()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param xml an XML snippet
+     * @return the given {@code xml} with whitespace adjacent to tags removed
+     */
+    static String normalizeWhitespace(String xml) {
+        final StringBuilder result = new StringBuilder(xml.length());
+        normalizeWhitespace(xml, 0, xml.length(), result);
+        return result.toString();
+    }
+
+    /**
+     * Appends the given range of {@code xml} to {@code result} leaving out the runs of whitespace that follow a
+     * {@code >} or precede a {@code <}.
+     *
+     * @param xml an XML snippet
+     * @param start the start index in {@code xml}, inclusive
+     * @param end the end index in {@code xml}, exclusive
+     * @param result the {@link StringBuilder} to append to
+     */
+    static void normalizeWhitespace(CharSequence xml, int start, int end, StringBuilder result) {
+        int i = start;
+        while (i < end) {
+            final char c = xml.charAt(i);
+            if (isWhitespace(c)) {
+                int wsEnd = i + 1;
+                while (wsEnd < end && isWhitespace(xml.charAt(wsEnd))) {
+                    wsEnd++;
+                }
+                final boolean afterTag = i > start && xml.charAt(i - 1) == '>';
+                final boolean beforeTag = wsEnd < end && xml.charAt(wsEnd) == '<';
+                if (!afterTag && !beforeTag) {
+                    result.append(xml, i, wsEnd);
+                }
+                i = wsEnd;
+            } else {
+                result.append(c);
+                i++;
+            }
+        }
+    }
+
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    /**
+     * @param normalizedDep a {@code <dependency>} snippet passed through {@link #normalizeWhitespace(String)}
+     * @return the content of the first non-empty {@code <groupId>} element
+     * @throws IllegalStateException if there is no {@code <groupId>} element in the given snippet
+     */
+    static String dependencyGroupId(CharSequence normalizedDep) {
+        int searchFrom = 0;
+        int tagStart;
+        while ((tagStart = indexOf(normalizedDep, GROUP_ID_START_TAG, searchFrom)) >= 0) {
+            final int valueStart = tagStart + GROUP_ID_START_TAG.length();
+            final int valueEnd = indexOf(normalizedDep, '<', valueStart);
+            if (valueEnd > valueStart && startsWith(normalizedDep, GROUP_ID_END_TAG, valueEnd)) {
+                return normalizedDep.subSequence(valueStart, valueEnd).toString();
+            }
+            searchFrom = tagStart + 1;
+        }
+        throw new IllegalStateException("Could not find groupId in " + normalizedDep);
+    }
+
+    /**
+     * @param normalizedDep a {@code <dependency>} snippet passed through {@link #normalizeWhitespace(String)}
+     * @return the sort key of the given dependency, namely the text of its child elements separated by single spaces
+     */
+    static String dependencyKey(CharSequence normalizedDep) {
+        final int length = normalizedDep.length();
+        final StringBuilder result = new StringBuilder(length);
+        int i = 0;
+        while (i < length) {
+            final char c = normalizedDep.charAt(i);
+            if (c == '<') {
+                final int gt = indexOf(normalizedDep, '>', i + 1);
+                if (gt > i + 1) {
+                    /* a tag or comment: replace with a space */
+                    appendSpace(result);
+                    i = gt + 1;
+                    continue;
+                }
+            }
+            if (c == ' ') {
+                appendSpace(result);
+            } else {
+                result.append(c);
+            }
+            i++;
+        }
+        return result.toString();
+    }
+
+    static void appendSpace(StringBuilder result) {
+        final int length = result.length();
+        if (length == 0 || result.charAt(length - 1) != ' ') {
+            result.append(' ');
+        }
+    }
+
+    static int indexOf(CharSequence haystack, char needle, int fromIndex) {
+        final int length = haystack.length();
+        for (int i = fromIndex; i < length; i++) {
+            if (haystack.charAt(i) == needle) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int indexOf(CharSequence haystack, String needle, int fromIndex) {
+        final int last = haystack.length() - needle.length();
+        for (int i = fromIndex; i <= last; i++) {
+            if (startsWith(haystack, needle, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param haystack the {@link CharSequence} to search in
+     * @param needle the string to search for
+     * @param fromIndex the index to start the backward search from
+     * @return the index of the last occurrence of {@code needle} starting at or before {@code fromIndex} or {@code -1}
+     *         if there is no such occurrence; the same as {@link String#lastIndexOf(String, int)} does
+     */
+    static int lastIndexOf(CharSequence haystack, String needle, int fromIndex) {
+        for (int i = Math.min(fromIndex, haystack.length() - needle.length()); i >= 0; i--) {
+            if (startsWith(haystack, needle, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static boolean startsWith(CharSequence haystack, String prefix, int offset) {
+        if (offset < 0 || offset + prefix.length() > haystack.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (haystack.charAt(offset + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param normalizedModule a {@code <module>} snippet passed through {@link #normalizeWhitespace(String)}
+     * @return the sort key of the given module, namely the text of the snippet with all tags and comments removed
+     */
+    static String moduleKey(String normalizedModule) {
+        return TAG_PATTERN.matcher(normalizedModule).replaceAll("");
+    }
+
     public static Set<String> findExtensionArtifactIds(
             Path baseDir,
             List<ExtensionDir> extensionDirs,
@@ -201,20 +516,16 @@ public class PomSorter {
         return extensionArtifactIds;
     }
 
-    static void write(final Path path, final String content) {
-        try {
-            Files.write(path, content.toString().getBytes(StandardCharsets.UTF_8));
-        } catch (IOException e) {
-            throw new RuntimeException("Could not write " + path, e);
+    static boolean write(final Path path, final CharSequence oldContent, final String content, boolean atomicWrite) {
+        if (content.contentEquals(oldContent)) {
+            return false;
         }
+        CqUtils.write(path, content, StandardCharsets.UTF_8, atomicWrite);
+        return true;
     }
 
-    static String read(final Path path) {
-        try {
-            return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            throw new RuntimeException("Could not read " + path, e);
-        }
+    static CharSequence read(final Path path) {
+        return CqUtils.readText(path, StandardCharsets.UTF_8);
     }
 
     static Stream<Path> safeList(Path extensionsDir) {
@@ -228,7 +539,7 @@ public class PomSorter {
     static Document parse(Path pomXmlPath) {
         try (Reader r = Files.newBufferedReader(pomXmlPath, StandardCharsets.UTF_8)) {
             final DOMResult result = new DOMResult();
-            TransformerFactory.newInstance().newTransformer().transform(new StreamSource(r), result);
+            PomTransformer.identityTransformer().transform(new StreamSource(r), result);
             return (Document) result.getNode();
         } catch (IOException | TransformerException | TransformerFactoryConfigurationError e) {
             throw new RuntimeException("Could not parse " + pomXmlPath, e);
@@ -271,53 +582,256 @@ public class PomSorter {
         }
     }
 
-    static class Appender {
-        private final Set<String> processedGroupIds = new HashSet<>();
-        private final String eol;
-        private final String indent;
-        private final Map<String, Map<String, String>> sortedDeps;
-        private final StringBuilder result;
-
-        public Appender(String eol, String indent, Map<String, Map<String, String>> sortedDeps, StringBuilder result) {
+    /**
+     * The result of matching {@link PomSorter#DEPENDENCY_MANAGEMENT_SORT_SPAN} against a {@code pom.xml} source using
+     * plain {@code indexOf()} lookups.
+     */
+    static class SortSpan {
+        /** The index right after the {@code >} closing the comment with the {@code a..z} marker */
+        final int dependenciesStart;
+        /** The index of the {@code </dependencies>} end tag followed by {@code </dependencyManagement>} */
+        final int dependenciesEnd;
+        final String eol;
+        final String indent;
+
+        SortSpan(int dependenciesStart, int dependenciesEnd, String eol, String indent) {
+            this.dependenciesStart = dependenciesStart;
+            this.dependenciesEnd = dependenciesEnd;
             this.eol = eol;
             this.indent = indent;
-            this.sortedDeps = sortedDeps;
-            this.result = result;
         }
 
-        public void comment(String comment) {
-            result.append(eol).append(eol)
-                    .append(indent).append(indent).append(indent).append("<!--$ " + comment + " $-->");
+        /**
+         * Finds the same span as {@link PomSorter#DEPENDENCY_MANAGEMENT_SORT_SPAN} would: the first {@code a..z}
+         * marker followed by some {@code >} and the last {@code </dependencies>} after it that is followed by a line
+         * break, spaces and {@code </dependencyManagement>}.
+         *
+         * @param xmlSource the {@code pom.xml} source to search
+         * @return a new {@link SortSpan} or {@code null} if there is no such span in the given {@code xmlSource}
+         */
+        static SortSpan find(CharSequence xmlSource) {
+            int markerStart = indexOf(xmlSource, SORT_MARKER, 0);
+            while (markerStart >= 0) {
+                final int gt = indexOf(xmlSource, '>', markerStart + SORT_MARKER.length());
+                if (gt < 0) {
+                    return null;
+                }
+                final int dependenciesStart = gt + 1;
+                int dependenciesEnd = lastIndexOf(xmlSource, DEPENDENCIES_END_TAG, xmlSource.length());
+                while (dependenciesEnd >= dependenciesStart) {
+                    final int eolStart = dependenciesEnd + DEPENDENCIES_END_TAG.length();
+                    int eolEnd = -1;
+                    if (startsWith(xmlSource, "\r\n", eolStart)) {
+                        eolEnd = eolStart + 2;
+                    } else if (startsWith(xmlSource, "\n", eolStart)) {
+                        eolEnd = eolStart + 1;
+                    }
+                    if (eolEnd >= 0) {
+                        int indentEnd = eolEnd;
+                        while (indentEnd < xmlSource.length() && xmlSource.charAt(indentEnd) == ' ') {
+                            indentEnd++;
+                        }
+                        if (startsWith(xmlSource, DEPENDENCY_MANAGEMENT_END_TAG, indentEnd)) {
+                            return new SortSpan(
+                                    dependenciesStart,
+                                    dependenciesEnd,
+                                    xmlSource.subSequence(eolStart, eolEnd).toString(),
+                                    xmlSource.subSequence(eolEnd, indentEnd).toString());
+                        }
+                    }
+                    dependenciesEnd = lastIndexOf(xmlSource, DEPENDENCIES_END_TAG, dependenciesEnd - 1);
+                }
+                markerStart = indexOf(xmlSource, SORT_MARKER, markerStart + 1);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The outcome of sorting a single {@code pom.xml} file.
+     */
+    public static class SortResult {
+        private final Path path;
+        private final boolean modified;
+        private final long durationNanos;
+
+        SortResult(Path path, boolean modified, long durationNanos) {
+            this.path = path;
+            this.modified = modified;
+            this.durationNanos = durationNanos;
         }
 
-        public void appendGroup(String groupId, boolean isComment) {
-            final Map<String, String> deps = sortedDeps.get(groupId);
-            if (deps == null || processedGroupIds.contains(groupId)) {
-                return;
-            }
-            processedGroupIds.add(groupId);
-            if (isComment) {
-                comment(groupId);
-            }
-            for (String dep : deps.values()) {
-                result.append(eol)
-                        .append(indent).append(indent).append(indent).append(dep)
-                        .append(eol).append(indent).append(indent).append(indent).append("</dependency>");
-            }
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * @return {@code true} if the file was changed; {@code false} otherwise
+         */
+        public boolean isModified() {
+            return modified;
         }
 
-        public void appendOther() {
-            if (processedGroupIds.size() < sortedDeps.size()) {
-                comment("Other third party dependencies");
-                for (Entry<String, Map<String, String>> group : sortedDeps.entrySet()) {
-                    appendGroup(group.getKey(), false);
+        /**
+         * @return the time spent on reading, sorting and writing the file in nanoseconds
+         */
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        @Override
+        public String toString() {
+            return path + (modified ? " modified" : " unchanged") + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(durationNanos) + " ms";
+        }
+    }
+
+    /**
+     * The outcome of {@link PomSorter#sort(Collection, Collection, DependencyGroupOrder, int, boolean)}.
+     */
+    public static class SortSummary {
+        private final List<SortResult> results;
+        private final long durationNanos;
+
+        SortSummary(List<SortResult> results, long durationNanos) {
+            this.results = Collections.unmodifiableList(results);
+            this.durationNanos = durationNanos;
+        }
+
+        /**
+         * @return the {@link SortResult}s in the order of the files passed to
+         *         {@link PomSorter#sort(Collection, Collection, DependencyGroupOrder, int, boolean)}
+         */
+        public List<SortResult> getResults() {
+            return results;
+        }
+
+        /**
+         * @return the paths of the files that were changed
+         */
+        public List<Path> getModifiedPaths() {
+            return results.stream()
+                    .filter(SortResult::isModified)
+                    .map(SortResult::getPath)
+                    .collect(Collectors.toList());
+        }
+
+        /**
+         * @return the wall clock time spent on sorting all files in nanoseconds
+         */
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder()
+                    .append("Sorted ").append(results.size()).append(" pom.xml files in ")
+                    .append(TimeUnit.NANOSECONDS.toMillis(durationNanos)).append(" ms, ")
+                    .append(getModifiedPaths().size()).append(" modified");
+            results.stream()
+                    .max((a, b) -> Long.compare(a.durationNanos, b.durationNanos))
+                    .ifPresent(slowest -> sb.append("; the slowest: ").append(slowest));
+            return sb.toString();
+        }
+    }
+
+    /**
+     * The order of the groups of managed dependencies and the texts of the generated comments preceding them.
+     */
+    public static class DependencyGroupOrder {
+        /** The groups listed in {@link PomSorter#DEPENDENCY_GROUP_IDS} */
+        public static final List<DependencyGroup> DEFAULT_GROUPS = Collections.unmodifiableList(DEPENDENCY_GROUP_IDS
+                .stream()
+                .map(groupId -> new DependencyGroup(groupId, null))
+                .collect(Collectors.toList()));
+        /** {@link #DEFAULT_GROUPS} followed by all other groups */
+        public static final DependencyGroupOrder DEFAULT = new DependencyGroupOrder(DEFAULT_GROUPS,
+                OTHER_DEPENDENCIES_COMMENT);
+
+        private final Map<String, Integer> groupRanks;
+        private final List<String> comments;
+
+        /**
+         * @param groups the groups to place first, in the given order
+         * @param otherDependenciesComment the comment to place before the dependencies whose groupId is not listed in
+         *        {@code groups}
+         */
+        public DependencyGroupOrder(List<DependencyGroup> groups, String otherDependenciesComment) {
+            final Map<String, Integer> ranks = new HashMap<>();
+            final List<String> comments = new ArrayList<>(groups.size() + 1);
+            for (DependencyGroup group : groups) {
+                if (ranks.putIfAbsent(group.getGroupId(), comments.size()) == null) {
+                    comments.add(group.getComment());
                 }
             }
+            comments.add(otherDependenciesComment);
+            this.groupRanks = ranks;
+            this.comments = Collections.unmodifiableList(comments);
+        }
+
+        /**
+         * @param groupId the groupId of a managed dependency
+         * @param key the sort key of the dependency as returned by {@link PomSorter#dependencyKey(CharSequence)}
+         * @return a new {@link SortKey}
+         */
+        SortKey sortKey(String groupId, String key) {
+            final Integer rank = groupRanks.get(groupId);
+            return new SortKey(rank != null ? rank.intValue() : comments.size() - 1, groupId, key);
+        }
+
+        /**
+         * @param groupRank the {@link SortKey#groupRank}
+         * @return the text of the generated comment preceding the group with the given rank
+         */
+        String comment(int groupRank) {
+            return comments.get(groupRank);
+        }
+    }
+
+    /**
+     * A precomputed sort key of a managed dependency: the rank of its group in the {@link DependencyGroupOrder}, its
+     * groupId and the text of its child elements.
+     */
+    static final class SortKey implements Comparable<SortKey> {
+        final int groupRank;
+        final String groupId;
+        final String key;
+
+        SortKey(int groupRank, String groupId, String key) {
+            this.groupRank = groupRank;
+            this.groupId = groupId;
+            this.key = key;
         }
 
-        public StringBuilder result() {
+        @Override
+        public int compareTo(SortKey other) {
+            int result = Integer.compare(groupRank, other.groupRank);
+            if (result == 0) {
+                result = groupId.compareTo(other.groupId);
+                if (result == 0) {
+                    result = key.compareTo(other.key);
+                }
+            }
             return result;
         }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * groupRank + groupId.hashCode()) + key.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof SortKey)) {
+                return false;
+            }
+            final SortKey other = (SortKey) obj;
+            return groupRank == other.groupRank && groupId.equals(other.groupId) && key.equals(other.key);
+        }
     }
 
 }
@@ -16,17 +16,17 @@
  */
 package org.l2x6.cq;
 
-import java.io.IOException;
-import java.io.StringReader;
+import java.io.Reader;
 import java.io.StringWriter;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -42,11 +42,11 @@ import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.TransformerFactoryConfigurationError;
@@ -56,10 +56,13 @@ import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
 import org.apache.maven.model.Plugin;
+import org.l2x6.cq.PomSorter.DependencyGroupOrder;
+import org.l2x6.cq.PomSorter.SortKey;
 import org.w3c.dom.Comment;
 import org.w3c.dom.DOMException;
 import org.w3c.dom.Document;
@@ -87,84 +90,176 @@ public class PomTransformer {
     static final Pattern WS_PATTERN = Pattern.compile("[ \t\n\r]+");
     static final Pattern EMPTY_LINE_PATTERN = Pattern.compile("[ \t]*\r?\n\r?\n[ \t\r\n]*");
 
+    /*
+     * TransformerFactory.newInstance() and XPathFactory.newInstance() perform a costly service lookup and neither the
+     * factories nor the objects they create are thread safe, so we keep one instance per thread
+     */
+    private static final ThreadLocal<Transformer> IDENTITY_TRANSFORMER = ThreadLocal.withInitial(() -> {
+        try {
+            return TransformerFactory.newInstance().newTransformer();
+        } catch (TransformerConfigurationException | TransformerFactoryConfigurationError e) {
+            throw new RuntimeException("Could not create an identity Transformer", e);
+        }
+    });
+    private static final ThreadLocal<XPath> XPATH = ThreadLocal.withInitial(() -> XPathFactory.newInstance().newXPath());
+    private static final ThreadLocal<Map<String, XPathExpression>> XPATH_EXPRESSIONS = ThreadLocal.withInitial(HashMap::new);
+
     private final Path path;
     private final Charset charset;
+    private final boolean atomicWrite;
+    private final Engine engine;
 
     public PomTransformer(Path path, Charset charset) {
+        this(path, charset, false);
+    }
+
+    /**
+     * @param path the {@code pom.xml} file to transform
+     * @param charset the encoding of the {@code pom.xml} file
+     * @param atomicWrite if {@code true}, the transformed content will be written to a temporary file first which will
+     *        then be moved over the {@code path}; otherwise the {@code path} will be overwritten in place
+     */
+    public PomTransformer(Path path, Charset charset, boolean atomicWrite) {
+        this(path, charset, atomicWrite, Engine.DOM);
+    }
+
+    /**
+     * @param path the {@code pom.xml} file to transform
+     * @param charset the encoding of the {@code pom.xml} file
+     * @param atomicWrite if {@code true}, the transformed content will be written to a temporary file first which will
+     *        then be moved over the {@code path}; otherwise the {@code path} will be overwritten in place
+     * @param engine the {@link Engine} to use for reading and writing the {@code pom.xml} file
+     */
+    public PomTransformer(Path path, Charset charset, boolean atomicWrite, Engine engine) {
         super();
         this.path = path;
         this.charset = charset;
+        this.atomicWrite = atomicWrite;
+        this.engine = engine;
     }
 
     /**
      * Loads the document under {@link #path}, applies the given {@code transformations}, mitigates the formatting
-     * issues caused by {@link Transformer} and finally stores the document back to the file under {@link #path}.
+     * issues caused by {@link Transformer} and finally stores the document back to the file under {@link #path}
+     * unless the result is the same as the original content.
      *
      * @param transformations the {@link Transformation}s to apply
+     * @return {@code true} if the file under {@link #path} was changed; {@code false} otherwise
      */
-    public void transform(Transformation... transformations) {
-        transform(Arrays.asList(transformations));
+    public boolean transform(Transformation... transformations) {
+        return transform(Arrays.asList(transformations));
     }
 
     /**
      * Loads the document under {@link #path}, applies the given {@code transformations}, mitigates the formatting
-     * issues caused by {@link Transformer} and finally stores the document back to the file under {@link #path}.
+     * issues caused by {@link Transformer} and finally stores the document back to the file under {@link #path}
+     * unless the result is the same as the original content.
      *
      * @param transformations the {@link Transformation}s to apply
+     * @return {@code true} if the file under {@link #path} was changed; {@code false} otherwise
      */
-    public void transform(Collection<Transformation> transformations) {
-        transform(transformations, path, () -> {
-            try {
-                return new String(Files.readAllBytes(path), charset);
-            } catch (IOException e) {
-                throw new RuntimeException(String.format("Could not read DOM from [%s]", path), e);
-            }
-        }, xml -> {
-            try {
-                Files.write(path, xml.getBytes(charset));
-            } catch (IOException e) {
-                throw new RuntimeException(String.format("Could not write DOM from [%s]", path), e);
+    public boolean transform(Collection<Transformation> transformations) {
+        /* Decode just once and do not copy to a String */
+        final CharBuffer src = CqUtils.readText(path, charset);
+        final boolean[] changed = new boolean[1];
+        transform(transformations, path, () -> src, engine, xml -> {
+            if (!xml.contentEquals(src)) {
+                CqUtils.write(path, xml, charset, atomicWrite);
+                changed[0] = true;
             }
         });
+        return changed[0];
     }
 
-    static void transform(Collection<Transformation> edits, Path path, Supplier<String> source,
+    static void transform(Collection<Transformation> edits, Path path, Supplier<? extends CharSequence> source,
             Consumer<String> outConsumer) {
-        final String src = source.get();
+        transform(edits, path, source, Engine.DOM, outConsumer);
+    }
+
+    static void transform(Collection<Transformation> edits, Path path, Supplier<? extends CharSequence> source,
+            Engine engine, Consumer<String> outConsumer) {
+        final CharSequence src = source.get();
 
         final Document document;
-        try {
-            final DOMResult domResult = new DOMResult();
-            TransformerFactory.newInstance().newTransformer()
-                    .transform(new StreamSource(new StringReader(source.get())), domResult);
-            document = (Document) domResult.getNode();
-        } catch (TransformerException | TransformerFactoryConfigurationError e) {
-            throw new RuntimeException(String.format("Could not read DOM from [%s]", path), e);
+        if (engine == Engine.LOSSLESS) {
+            try {
+                document = LosslessDom.parse(src);
+            } catch (IllegalStateException e) {
+                throw new RuntimeException(String.format("Could not read DOM from [%s]", path), e);
+            }
+        } else {
+            try {
+                final DOMResult domResult = new DOMResult();
+                identityTransformer().transform(new StreamSource(new CharSequenceReader(src)), domResult);
+                document = (Document) domResult.getNode();
+            } catch (TransformerException | TransformerFactoryConfigurationError e) {
+                throw new RuntimeException(String.format("Could not read DOM from [%s]", path), e);
+            }
         }
 
-        final XPath xPath = XPathFactory.newInstance().newXPath();
+        final XPath xPath = xPath();
         final TransformationContext context = new TransformationContext(path, document,
-                detectIndentation(document, xPath), xPath);
+                detectIndentation(document), xPath);
         for (Transformation edit : edits) {
             edit.perform(document, context);
+            /* The next Transformation may change the DOM in ways we cannot track */
+            context.invalidateDependencyIndex();
+        }
+        final String eol = detectEol(src);
+        if (engine == Engine.LOSSLESS) {
+            /* The untouched parts are copied from src verbatim, so there is nothing to postprocess */
+            outConsumer.accept(LosslessDom.serialize(document, src, eol));
+            return;
         }
         String result;
         try {
             StringWriter out = new StringWriter();
-            TransformerFactory.newInstance().newTransformer().transform(new DOMSource(document), new StreamResult(out));
+            identityTransformer().transform(new DOMSource(document), new StreamResult(out));
             result = out.toString();
 
         } catch (TransformerException | TransformerFactoryConfigurationError e) {
             throw new RuntimeException(String.format("Could not write DOM from [%s]", path), e);
         }
 
-        final String eol = detectEol(src);
         result = EOL_PATTERN.matcher(result).replaceAll(eol);
         result = postprocess(src, result);
         outConsumer.accept(result);
     }
 
-    static String postprocess(String src, String result) {
+    /**
+     * @return an identity {@link Transformer} owned by the current thread, reset to its initial state
+     */
+    static Transformer identityTransformer() {
+        final Transformer result = IDENTITY_TRANSFORMER.get();
+        result.reset();
+        return result;
+    }
+
+    /**
+     * @return an {@link XPath} owned by the current thread, reset to its initial state
+     */
+    static XPath xPath() {
+        final XPath result = XPATH.get();
+        result.reset();
+        return result;
+    }
+
+    /**
+     * @param expression the XPath expression to compile
+     * @return a compiled {@link XPathExpression} owned by the current thread, cached for subsequent calls with the
+     *         same {@code expression}
+     */
+    static XPathExpression compile(String expression) {
+        return XPATH_EXPRESSIONS.get().computeIfAbsent(expression, k -> {
+            try {
+                return XPATH.get().compile(k);
+            } catch (XPathExpressionException e) {
+                throw new RuntimeException("Could not compile XPath expression " + k, e);
+            }
+        });
+    }
+
+    static String postprocess(CharSequence src, String result) {
         for (Pattern p : POSTPROCESS_PATTERNS) {
             final Matcher srcMatcher = p.matcher(src);
             if (srcMatcher.find()) {
@@ -175,32 +270,179 @@ public class PomTransformer {
         return result;
     }
 
-    static String detectIndentation(Node document, XPath xPath) {
-        try {
-            final String ws = (String) xPath.evaluate(anyNs("project") + "/*[1]/preceding-sibling::text()[last()]",
-                    document, XPathConstants.STRING);
-            if (ws != null && !ws.isEmpty()) {
-                int i = ws.length() - 1;
-                LOOP: while (i >= 0) {
-                    switch (ws.charAt(i)) {
-                    case ' ':
-                    case '\t':
-                        i--;
-                        break;
-                    default:
-                        break LOOP;
+    /**
+     * @param document the {@link Document} to inspect
+     * @return the whitespace preceding the first child element of {@code project} (without newlines) or four spaces
+     *         if there is no such whitespace
+     */
+    static String detectIndentation(Node document) {
+        final Element project = childElement(document, "project");
+        if (project != null) {
+            String ws = null;
+            for (Node n = project.getFirstChild(); n != null; n = n.getNextSibling()) {
+                if (n.getNodeType() == Node.ELEMENT_NODE) {
+                    if (ws != null && !ws.isEmpty()) {
+                        int i = ws.length() - 1;
+                        LOOP: while (i >= 0) {
+                            switch (ws.charAt(i)) {
+                            case ' ':
+                            case '\t':
+                                i--;
+                                break;
+                            default:
+                                break LOOP;
+                            }
+                        }
+                        return ws.substring(i + 1);
                     }
+                    break;
+                } else if (ws == null && n.getNodeType() == Node.TEXT_NODE) {
+                    ws = n.getNodeValue();
                 }
-                return ws.substring(i + 1);
             }
-            return "    ";
-        } catch (XPathExpressionException e) {
-            throw new RuntimeException(e);
         }
+        return "    ";
+    }
+
+    /**
+     * @param parent the node whose children should be searched
+     * @param localName the local name of the element to find, regardless of its namespace
+     * @return the first child element of {@code parent} having the given {@code localName} or {@code null}
+     */
+    static Element childElement(Node parent, String localName) {
+        for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n.getNodeType() == Node.ELEMENT_NODE && localName.equals(localName(n))) {
+                return (Element) n;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param parent the node to start from
+     * @param path the local names of the elements to walk through
+     * @return the element reachable from {@code parent} via the given {@code path} or {@code null}
+     */
+    static Element childElement(Node parent, String... path) {
+        Node result = parent;
+        for (String localName : path) {
+            result = childElement(result, localName);
+            if (result == null) {
+                return null;
+            }
+        }
+        return (Element) result;
+    }
+
+    static String localName(Node node) {
+        final String localName = node.getLocalName();
+        if (localName != null) {
+            return localName;
+        }
+        final String nodeName = node.getNodeName();
+        final int colonPos = nodeName.indexOf(':');
+        return colonPos >= 0 ? nodeName.substring(colonPos + 1) : nodeName;
+    }
+
+    static String detectEol(CharSequence src) {
+        for (int i = 0; i < src.length(); i++) {
+            if (src.charAt(i) == '\r') {
+                return "\r\n";
+            }
+        }
+        return "\n";
     }
 
-    static String detectEol(String src) {
-        return src.indexOf('\r') >= 0 ? "\r\n" : "\n";
+    /**
+     * The ways of reading and writing the {@code pom.xml} files.
+     */
+    public enum Engine {
+        /**
+         * Parse and serialize using an identity {@link Transformer} and mitigate the formatting changes it introduces
+         * by a set of regular expressions afterwards
+         */
+        DOM,
+        /**
+         * Parse and serialize using {@link LosslessDom}: the parts of the document not touched by any
+         * {@link Transformation} are copied from the source verbatim
+         */
+        LOSSLESS
+    }
+
+    /**
+     * A {@link Reader} over a {@link CharSequence} that, unlike {@link java.io.StringReader}, does not require the
+     * content to be copied to a {@link String} first.
+     */
+    static class CharSequenceReader extends Reader {
+        private final CharSequence source;
+        private int position;
+        private int mark;
+
+        CharSequenceReader(CharSequence source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read() {
+            return position < source.length() ? source.charAt(position++) : -1;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            final int end = Math.min(source.length(), position + len);
+            if (position >= end) {
+                return -1;
+            }
+            if (source instanceof CharBuffer) {
+                final CharBuffer buffer = ((CharBuffer) source).duplicate();
+                buffer.position(buffer.position() + position);
+                buffer.get(cbuf, off, end - position);
+            } else {
+                for (int i = position; i < end; i++) {
+                    cbuf[off++] = source.charAt(i);
+                }
+            }
+            final int result = end - position;
+            position = end;
+            return result;
+        }
+
+        @Override
+        public long skip(long n) {
+            if (n < 0) {
+                throw new IllegalArgumentException("skip value is negative");
+            }
+            final int result = (int) Math.min(n, source.length() - position);
+            position += result;
+            return result;
+        }
+
+        @Override
+        public boolean ready() {
+            return true;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public void mark(int readAheadLimit) {
+            mark = position;
+        }
+
+        @Override
+        public void reset() {
+            position = mark;
+        }
+
+        @Override
+        public void close() {
+        }
     }
 
     /**
@@ -426,11 +668,11 @@ public class PomTransformer {
             addChildTextElement(name, value, getOrAddLastIndent());
         }
 
-        public void addGavtcs(Gavtcs gavtcs) {
-            addGavtcs(gavtcs, getOrAddLastIndent());
+        public ContainerElement addGavtcs(Gavtcs gavtcs) {
+            return addGavtcs(gavtcs, getOrAddLastIndent());
         }
 
-        public void addGavtcs(Gavtcs gavtcs, Node refNode) {
+        public ContainerElement addGavtcs(Gavtcs gavtcs, Node refNode) {
             final ContainerElement dep = addChildContainerElement("dependency", refNode, false, false);
             dep.addChildTextElement("groupId", gavtcs.getGroupId());
             dep.addChildTextElement("artifactId", gavtcs.getArtifactId());
@@ -447,6 +689,7 @@ public class PomTransformer {
                     exclusionNode.addChildTextElement("artifactId", ga.getArtifactId());
                 }
             }
+            return dep;
         }
 
         public Gavtcs asGavtcs() {
@@ -576,6 +819,7 @@ public class PomTransformer {
         private final ContainerElement project;
         private final XPath xPath;
         private final String indentationString;
+        private DependencyIndex dependencyIndex;
         private static volatile Map<String, ElementOrderEntry> elementOrdering;
         private static final Object elementOrderingLock = new Object();
 
@@ -605,7 +849,7 @@ public class PomTransformer {
 
         /**
          * @return an indentation string (without newline characters) as it was autodetected using
-         *         {@link PomTransformer#detectIndentation(Node, XPath)}
+         *         {@link PomTransformer#detectIndentation(Node)}
          */
         public String getIndentationString() {
             return indentationString;
@@ -761,68 +1005,223 @@ public class PomTransformer {
         }
 
         public Optional<ContainerElement> getContainerElement(String... path) {
-            try {
-                final Node node = (Node) xPath.evaluate(anyNs(path), document, XPathConstants.NODE);
-                if (node != null) {
-                    return Optional.of(new ContainerElement(this, (Element) node, null, path.length - 1));
-                }
-                return Optional.empty();
-            } catch (XPathExpressionException e) {
-                throw new RuntimeException(e);
+            /* A plain walk over child elements is much faster than XPath */
+            final Element node = childElement(document, path);
+            if (node != null) {
+                return Optional.of(new ContainerElement(this, node, null, path.length - 1));
             }
+            return Optional.empty();
         }
 
         public Set<Gavtcs> getDependencies() {
-            return getContainerElement("project", "dependencies")
-                    .map(deps -> deps.childElementsStream()
-                            .map(dep -> dep.asContainerElement().asGavtcs())
-                            .collect(Collectors.toCollection(() -> (Set<Gavtcs>) new LinkedHashSet<Gavtcs>())))
-                    .orElse(Collections.emptySet());
+            return new LinkedHashSet<>(getDependencyIndex().gavtcs);
         }
 
         public Optional<ContainerElement> findDependency(Gavtcs gavtcs) {
-            return getContainerElement("project", "dependencies")
-            .map(depsNode -> depsNode.childElementsStream()
-                    .map(WrappedNode::asContainerElement)
-                    .filter(depNode ->
-                    depNode.asGavtcs().equals(gavtcs))
-                    .findFirst()
-                    .orElse(null)
-            );
+            final DependencyIndex index = getDependencyIndex();
+            return Optional.ofNullable(index.byGavtcs.get(gavtcs))
+                    .map(depNode -> new ContainerElement(this, depNode, null, index.container.indentLevel + 1));
         }
 
         public void removeDependency(Gavtcs removedDependency, boolean removePrecedingComments, boolean removePrecedingWhitespace) {
-            getContainerElement("project", "dependencies")
-                    .ifPresent(deps -> deps.childElementsStream()
-                            .filter(wrappedDepNode -> wrappedDepNode.asContainerElement().asGavtcs().equals(removedDependency))
-                            .findFirst()
-                            .ifPresent(wrappedDepNode -> wrappedDepNode.remove(removePrecedingComments, removePrecedingWhitespace)));
+            final DependencyIndex index = getDependencyIndex();
+            final Element depNode = index.byGavtcs.get(removedDependency);
+            if (depNode != null) {
+                new WrappedNode<Element>(this, depNode, index.container.indentLevel + 1)
+                        .remove(removePrecedingComments, removePrecedingWhitespace);
+                index.remove(depNode);
+            }
         }
 
         public void addDependencyIfNeeded(Gavtcs gavtcs, Comparator<Gavtcs> comparator) {
-            final ContainerElement deps = getOrAddContainerElement("dependencies");
-            Node refNode = null;
-            for (WrappedNode<Element> dep : deps.childElements()) {
-                final Gavtcs depGavtcs = dep.asContainerElement().asGavtcs();
-                int comparison = comparator.compare(gavtcs, depGavtcs);
+            DependencyIndex index = getDependencyIndex();
+            if (index.container == null) {
+                getOrAddContainerElement("dependencies");
+                index = getDependencyIndex();
+            }
+            int insertionIndex = -1;
+            for (int i = 0; i < index.gavtcs.size(); i++) {
+                int comparison = comparator.compare(gavtcs, index.gavtcs.get(i));
                 if (comparison == 0) {
                     /* the given gavtcs is available, no need to add it */
                     return;
                 }
-                if (refNode == null && comparison < 0) {
-                    refNode = dep.previousSiblingInsertionRefNode();
+                if (insertionIndex < 0 && comparison < 0) {
+                    insertionIndex = i;
                 }
             }
+            index.add(gavtcs, insertionIndex);
+        }
 
-            if (refNode == null) {
-                refNode = deps.getOrAddLastIndent();
+        /**
+         * Adds those of the given {@code newDependencies} that are not available yet, in the same way as calling
+         * {@link #addDependencyIfNeeded(Gavtcs, Comparator)} for each of them would do, but in a single pass over the
+         * existing dependencies.
+         *
+         * @param newDependencies the dependencies to add
+         * @param comparator the {@link Comparator} to determine the position of the new dependencies and whether they
+         *        are available already
+         */
+        public void addDependenciesIfNeeded(Collection<Gavtcs> newDependencies, Comparator<Gavtcs> comparator) {
+            if (newDependencies.isEmpty()) {
+                return;
+            }
+            DependencyIndex index = getDependencyIndex();
+            if (index.container == null) {
+                getOrAddContainerElement("dependencies");
+                index = getDependencyIndex();
+            }
+            final SortedSet<Gavtcs> sortedNewDependencies = new TreeSet<>(comparator);
+            sortedNewDependencies.addAll(newDependencies);
+            index.addAll(sortedNewDependencies, comparator);
+        }
+
+        /**
+         * @return the {@link DependencyIndex} of the current {@code project/dependencies} element, created lazily
+         */
+        DependencyIndex getDependencyIndex() {
+            final Element deps = childElement(document, "project", "dependencies");
+            if (dependencyIndex == null || (dependencyIndex.container == null ? deps != null
+                    : dependencyIndex.container.node != deps)) {
+                dependencyIndex = new DependencyIndex(
+                        deps == null ? null : new ContainerElement(this, deps, null, 1));
+            }
+            return dependencyIndex;
+        }
+
+        /**
+         * Drop the {@link DependencyIndex} so that it gets rebuilt on the next access; to be called when the
+         * {@code project/dependencies} may have been changed by other means than the methods of this
+         * {@link TransformationContext}.
+         */
+        public void invalidateDependencyIndex() {
+            dependencyIndex = null;
+        }
+
+        /**
+         * The {@link Gavtcs} and {@link Element}s of the dependencies under {@code project/dependencies} in document
+         * order, so that they do not need to be re-read from the DOM on every lookup. Kept up to date by
+         * {@link TransformationContext#addDependencyIfNeeded(Gavtcs, Comparator)} and
+         * {@link TransformationContext#removeDependency(Gavtcs, boolean, boolean)}.
+         */
+        static class DependencyIndex {
+            private final ContainerElement container;
+            private final List<Gavtcs> gavtcs = new ArrayList<>();
+            private final List<Element> elements = new ArrayList<>();
+            /** The first occurrence of each {@link Gavtcs} */
+            private final Map<Gavtcs, Element> byGavtcs = new HashMap<>();
+            private boolean hasDuplicates;
+
+            DependencyIndex(ContainerElement container) {
+                this.container = container;
+                if (container != null) {
+                    for (WrappedNode<Element> dep : container.childElements()) {
+                        final Gavtcs depGavtcs = dep.asContainerElement().asGavtcs();
+                        gavtcs.add(depGavtcs);
+                        elements.add(dep.node);
+                        hasDuplicates |= byGavtcs.putIfAbsent(depGavtcs, dep.node) != null;
+                    }
+                }
+            }
+
+            void add(Gavtcs newGavtcs, int insertionIndex) {
+                final Node refNode = insertionIndex < 0
+                        ? container.getOrAddLastIndent()
+                        : new WrappedNode<Element>(container.context, elements.get(insertionIndex), container.indentLevel + 1)
+                                .previousSiblingInsertionRefNode();
+                final Element newNode = container.addGavtcs(newGavtcs, refNode).node;
+                if (insertionIndex < 0) {
+                    gavtcs.add(newGavtcs);
+                    elements.add(newNode);
+                } else {
+                    gavtcs.add(insertionIndex, newGavtcs);
+                    elements.add(insertionIndex, newNode);
+                }
+                hasDuplicates |= byGavtcs.putIfAbsent(newGavtcs, newNode) != null;
+            }
+
+            /**
+             * Merges the given {@code newGavtcs} into the existing dependencies. Because the {@code newGavtcs} are
+             * sorted, the position of the first existing dependency greater than the current new one can only move
+             * forward, so a single pass over the existing dependencies is enough.
+             *
+             * @param newGavtcs the dependencies to add sorted by {@code comparator}
+             * @param comparator the {@link Comparator} used to sort {@code newGavtcs}
+             */
+            void addAll(SortedSet<Gavtcs> newGavtcs, Comparator<Gavtcs> comparator) {
+                final Set<Gavtcs> available = new TreeSet<>(comparator);
+                available.addAll(gavtcs);
+                final int size = gavtcs.size();
+                final List<Gavtcs> mergedGavtcs = new ArrayList<>(size + newGavtcs.size());
+                final List<Element> mergedElements = new ArrayList<>(size + newGavtcs.size());
+                int i = 0;
+                for (Gavtcs newDep : newGavtcs) {
+                    if (available.contains(newDep)) {
+                        /* the given gavtcs is available, no need to add it */
+                        continue;
+                    }
+                    while (i < size && comparator.compare(newDep, gavtcs.get(i)) >= 0) {
+                        mergedGavtcs.add(gavtcs.get(i));
+                        mergedElements.add(elements.get(i));
+                        i++;
+                    }
+                    final Node refNode = i < size
+                            ? new WrappedNode<Element>(container.context, elements.get(i), container.indentLevel + 1)
+                                    .previousSiblingInsertionRefNode()
+                            : container.getOrAddLastIndent();
+                    final Element newNode = container.addGavtcs(newDep, refNode).node;
+                    mergedGavtcs.add(newDep);
+                    mergedElements.add(newNode);
+                    hasDuplicates |= byGavtcs.putIfAbsent(newDep, newNode) != null;
+                }
+                for (; i < size; i++) {
+                    mergedGavtcs.add(gavtcs.get(i));
+                    mergedElements.add(elements.get(i));
+                }
+                gavtcs.clear();
+                gavtcs.addAll(mergedGavtcs);
+                elements.clear();
+                elements.addAll(mergedElements);
+            }
+
+            void remove(Element depNode) {
+                final int i = elements.indexOf(depNode);
+                final Gavtcs removed = gavtcs.remove(i);
+                elements.remove(i);
+                byGavtcs.remove(removed);
+                if (hasDuplicates) {
+                    /* Promote the next occurrence if there is any */
+                    for (int j = i; j < gavtcs.size(); j++) {
+                        if (gavtcs.get(j).equals(removed)) {
+                            byGavtcs.put(removed, elements.get(j));
+                            break;
+                        }
+                    }
+                }
             }
-            deps.addGavtcs(gavtcs, refNode);
         }
 
         public void removeNode(String xPathExpression, boolean removePrecedingComments, boolean removePrecedingWhitespace, boolean onlyIfEmpty) {
+            final Node deletedNode;
+            try {
+                deletedNode = (Node) compile(xPathExpression).evaluate(document, XPathConstants.NODE);
+            } catch (XPathExpressionException e) {
+                throw new RuntimeException(e);
+            }
+            removeNode(deletedNode, removePrecedingComments, removePrecedingWhitespace, onlyIfEmpty);
+        }
+
+        /**
+         * Removes the given {@code deletedNode} from its parent.
+         *
+         * @param deletedNode the node to remove; a no-op if {@code null}
+         * @param removePrecedingComments if {@code true} the comments preceding {@code deletedNode} will be removed too
+         * @param removePrecedingWhitespace if {@code true} the whitespace preceding {@code deletedNode} will be removed
+         *        too
+         * @param onlyIfEmpty if {@code true} the {@code deletedNode} will be removed only if it has no child elements
+         */
+        public void removeNode(Node deletedNode, boolean removePrecedingComments, boolean removePrecedingWhitespace, boolean onlyIfEmpty) {
             try {
-                Node deletedNode = (Node) getXPath().evaluate(xPathExpression, document, XPathConstants.NODE);
                 if (deletedNode != null) {
                     if (onlyIfEmpty && hasElementChildren(deletedNode)) {
                         return;
@@ -839,11 +1238,214 @@ public class PomTransformer {
                     }
                     deletedNode.getParentNode().removeChild(deletedNode);
                 }
-            } catch (XPathExpressionException | DOMException e) {
+            } catch (DOMException e) {
                 throw new RuntimeException(e);
             }
         }
 
+        /**
+         * Sorts the {@code <module>} elements occurring after a comment containing the {@code a..z} marker string
+         * under {@code project/modules} in the same way as {@link PomSorter#sortModules(Path)} does.
+         */
+        public void sortModules() {
+            final ContainerElement modules = getContainerElement("project", "modules")
+                    .orElseThrow(() -> new IllegalStateException("Could not find project/modules in " + pomXmlPath));
+            final Node marker = findSortMarker(modules);
+
+            /* Sort the lines following the marker by adding to a TreeMap */
+            final Map<String, List<Node>> sortedModules = new TreeMap<>();
+            List<Node> line = new ArrayList<>();
+            for (Node n : removeFollowingSiblings(marker)) {
+                if (n.getNodeType() == Node.TEXT_NODE && EOL_PATTERN.matcher(n.getNodeValue()).find()) {
+                    addSortedLine(sortedModules, line);
+                    line = new ArrayList<>();
+                } else {
+                    line.add(n);
+                }
+            }
+            addSortedLine(sortedModules, line);
+
+            for (List<Node> module : sortedModules.values()) {
+                modules.node.appendChild(indent(modules.indentLevel + 1));
+                module.forEach(modules.node::appendChild);
+            }
+            modules.node.appendChild(indent(modules.indentLevel));
+        }
+
+        static void addSortedLine(Map<String, List<Node>> sortedLines, List<Node> line) {
+            trimWhiteSpaceNodes(line);
+            if (!line.isEmpty()) {
+                final String key = PomSorter.moduleKey(PomSorter.normalizeWhitespace(toXmlString(line)));
+                if (!key.isEmpty()) {
+                    sortedLines.put(key, line);
+                }
+            }
+        }
+
+        /**
+         * Sorts the {@code <dependency>} elements occurring after a comment containing the {@code a..z} marker string
+         * under {@code project/dependencyManagement/dependencies} in the same way as
+         * {@link PomSorter#sortDependencyManagement(Path)} does.
+         */
+        public void sortDependencyManagement() {
+            sortDependencyManagement(DependencyGroupOrder.DEFAULT);
+        }
+
+        /**
+         * Sorts the {@code <dependency>} elements occurring after a comment containing the {@code a..z} marker string
+         * under {@code project/dependencyManagement/dependencies} in the same way as
+         * {@link PomSorter#sortDependencyManagement(Path, DependencyGroupOrder, boolean)} does.
+         *
+         * @param groupOrder the order of the dependency groups and their comments
+         */
+        public void sortDependencyManagement(DependencyGroupOrder groupOrder) {
+            final ContainerElement deps = getContainerElement("project", "dependencyManagement", "dependencies")
+                    .orElseThrow(() -> new IllegalStateException(
+                            "Could not find project/dependencyManagement/dependencies in " + pomXmlPath));
+            final Node marker = findSortMarker(deps);
+
+            /* Sort by adding to a TreeMap; each dependency is kept together with the comments preceding it */
+            final Map<SortKey, List<Node>> sortedDeps = new TreeMap<>();
+            List<Node> chunk = new ArrayList<>();
+            for (Node n : removeFollowingSiblings(marker)) {
+                if (n.getNodeType() == Node.COMMENT_NODE
+                        && PomSorter.GENERATED_COMMENT_PATTERN.matcher("<!--" + n.getNodeValue() + "-->").matches()) {
+                    /* drop the comments we generate ourselves below */
+                    continue;
+                }
+                chunk.add(n);
+                if (n.getNodeType() == Node.ELEMENT_NODE) {
+                    trimWhiteSpaceNodes(chunk);
+                    final String xml = toXmlString(chunk);
+                    final String normalizedDep = PomSorter.normalizeWhitespace(
+                            xml.substring(0, xml.length() - ("</" + n.getNodeName() + ">").length()));
+                    sortedDeps.put(groupOrder.sortKey(PomSorter.dependencyGroupId(normalizedDep),
+                            PomSorter.dependencyKey(normalizedDep)), chunk);
+                    chunk = new ArrayList<>();
+                }
+            }
+            trimWhiteSpaceNodes(chunk);
+
+            final int depIndentLevel = deps.indentLevel + 1;
+            int lastGroupRank = -1;
+            for (Map.Entry<SortKey, List<Node>> dep : sortedDeps.entrySet()) {
+                final int groupRank = dep.getKey().groupRank;
+                if (groupRank != lastGroupRank) {
+                    deps.node.appendChild(newLine());
+                    deps.node.appendChild(indent(depIndentLevel));
+                    deps.node.appendChild(document.createComment("$ " + groupOrder.comment(groupRank) + " $"));
+                    lastGroupRank = groupRank;
+                }
+                appendSortedDependency(deps, depIndentLevel, dep.getValue());
+            }
+            if (!chunk.isEmpty()) {
+                /* Some trailing comments */
+                deps.node.appendChild(indent(depIndentLevel));
+                chunk.forEach(deps.node::appendChild);
+            }
+            deps.node.appendChild(indent(deps.indentLevel));
+        }
+
+        void appendSortedDependency(ContainerElement deps, int depIndentLevel, List<Node> chunk) {
+            deps.node.appendChild(indent(depIndentLevel));
+            chunk.forEach(deps.node::appendChild);
+            /* Normalize the indentation of the end tag */
+            final Node dep = chunk.get(chunk.size() - 1);
+            final Node last = dep.getLastChild();
+            if (last != null && isWhiteSpaceNode(last)) {
+                dep.removeChild(last);
+            }
+            dep.appendChild(indent(depIndentLevel));
+        }
+
+        Node findSortMarker(ContainerElement container) {
+            for (Node n = container.node.getFirstChild(); n != null; n = n.getNextSibling()) {
+                if (n.getNodeType() == Node.COMMENT_NODE && n.getNodeValue().contains(PomSorter.SORT_MARKER)) {
+                    return n;
+                }
+            }
+            throw new IllegalStateException("Could not find a comment containing " + PomSorter.SORT_MARKER + " under "
+                    + container.node.getNodeName() + " in " + pomXmlPath);
+        }
+
+        static List<Node> removeFollowingSiblings(Node node) {
+            final List<Node> result = new ArrayList<>();
+            Node n;
+            while ((n = node.getNextSibling()) != null) {
+                result.add(node.getParentNode().removeChild(n));
+            }
+            return result;
+        }
+
+        static void trimWhiteSpaceNodes(List<Node> nodes) {
+            while (!nodes.isEmpty() && isWhiteSpaceNode(nodes.get(0))) {
+                nodes.remove(0);
+            }
+            while (!nodes.isEmpty() && isWhiteSpaceNode(nodes.get(nodes.size() - 1))) {
+                nodes.remove(nodes.size() - 1);
+            }
+        }
+
+        /**
+         * @param nodes the nodes to serialize
+         * @return a simplified XML serialization of the given {@code nodes} without attributes, suitable for computing
+         *         sort keys
+         */
+        static String toXmlString(List<Node> nodes) {
+            final StringBuilder sb = new StringBuilder();
+            for (Node n : nodes) {
+                appendXml(sb, n);
+            }
+            return sb.toString();
+        }
+
+        static void appendXml(StringBuilder sb, Node node) {
+            switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                sb.append('<').append(node.getNodeName()).append('>');
+                for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    appendXml(sb, child);
+                }
+                sb.append("</").append(node.getNodeName()).append('>');
+                break;
+            case Node.COMMENT_NODE:
+                sb.append("<!--").append(node.getNodeValue()).append("-->");
+                break;
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+                final String text = node.getNodeValue();
+                for (int i = 0; i < text.length(); i++) {
+                    final char c = text.charAt(i);
+                    switch (c) {
+                    case '<':
+                        sb.append("&lt;");
+                        break;
+                    case '>':
+                        sb.append("&gt;");
+                        break;
+                    case '&':
+                        sb.append("&amp;");
+                        break;
+                    default:
+                        sb.append(c);
+                        break;
+                    }
+                }
+                break;
+            default:
+                break;
+            }
+        }
+
+        static boolean hasText(Node node, String text) {
+            for (Node n = node.getFirstChild(); n != null; n = n.getNextSibling()) {
+                if (n.getNodeType() == Node.TEXT_NODE && text.equals(n.getNodeValue())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         public static boolean hasElementChildren(Node node) {
             final NodeList children = node.getChildNodes();
             if (children.getLength() == 0) {
@@ -899,8 +1501,8 @@ public class PomTransformer {
                 for (String n : furtherNames) {
                     path[i++] = n;
                 }
-                final String xPath = anyNs(path);
-                context.removeNode(xPath, removePrecedingComments, removePrecedingWhitespace, onlyIfEmpty);
+                context.removeNode(childElement(document, path), removePrecedingComments, removePrecedingWhitespace,
+                        onlyIfEmpty);
             };
         }
 
@@ -928,16 +1530,18 @@ public class PomTransformer {
             return (Document document, TransformationContext context) -> {
                 final Set<Gavtcs> deps = context.getDependencies();
                 final Set<Gavtcs> newMappedDeps = new TreeSet<>(comparator);
+                final List<Gavtcs> depsToAdd = new ArrayList<>();
                 for (Gavtcs dep : deps) {
                     dependencyMapper
                             .apply(dep)
                             .ifPresent(mappedDep -> {
                                 newMappedDeps.add(mappedDep);
                                 if (!deps.contains(mappedDep)) {
-                                    context.addDependencyIfNeeded(mappedDep, comparator);
+                                    depsToAdd.add(mappedDep);
                                 }
                             });
                 }
+                context.addDependenciesIfNeeded(depsToAdd, comparator);
 
                 /* Remove stale mapped deps */
                 deps.stream()
@@ -975,9 +1579,7 @@ public class PomTransformer {
                         }
                     }
                 }
-                for (Gavtcs dep : depsToAdd) {
-                    context.addDependencyIfNeeded(dep, comparator);
-                }
+                context.addDependenciesIfNeeded(depsToAdd, comparator);
 
                 if (initialComment != null && firstSubsetNode != null) {
                     context.findDependency(firstSubsetNode)
@@ -987,69 +1589,73 @@ public class PomTransformer {
             };
         }
 
+        /**
+         * @return a {@link Transformation} sorting the modules after the {@code a..z} marker comment
+         * @see TransformationContext#sortModules()
+         */
+        public static Transformation sortModules() {
+            return (Document document, TransformationContext context) -> context.sortModules();
+        }
+
+        /**
+         * @return a {@link Transformation} sorting the managed dependencies after the {@code a..z} marker comment
+         * @see TransformationContext#sortDependencyManagement()
+         */
+        public static Transformation sortDependencyManagement() {
+            return (Document document, TransformationContext context) -> context.sortDependencyManagement();
+        }
+
         public static Transformation removeModule(boolean removePrecedingComments, boolean removePrecedingWhitespace, String module) {
             return (Document document, TransformationContext context) -> {
-                final String xPath = anyNs("project", "modules", "module") + "[text() = '" + module + "']";
-                context.removeNode(xPath, removePrecedingComments, removePrecedingWhitespace, false);
+                final Element modules = childElement(document, "project", "modules");
+                if (modules != null) {
+                    for (Node n = modules.getFirstChild(); n != null; n = n.getNextSibling()) {
+                        if (n.getNodeType() == Node.ELEMENT_NODE && "module".equals(localName(n))
+                                && TransformationContext.hasText(n, module)) {
+                            context.removeNode(n, removePrecedingComments, removePrecedingWhitespace, false);
+                            return;
+                        }
+                    }
+                }
             };
         }
 
         public static Transformation removeProperty(boolean removePrecedingComments, boolean removePrecedingWhitespace, String propertyName) {
             return (Document document, TransformationContext context) -> {
-                final String xPath = anyNs("project", "properties", propertyName);
-                context.removeNode(xPath, removePrecedingComments, removePrecedingWhitespace, false);
+                context.removeNode(childElement(document, "project", "properties", propertyName), removePrecedingComments,
+                        removePrecedingWhitespace, false);
             };
         }
 
         public static Transformation setParent(String artifactId, String relativePath) {
             return (Document document, TransformationContext context) -> {
-                try {
-                    {
-                        final String xPathExpression = anyNs("project", "parent", "artifactId") + "text()";
-                        Node artifactIdNode = (Node) context.getXPath().evaluate(
-                                xPathExpression, document,
-                                XPathConstants.NODE);
-                        if (artifactIdNode != null) {
-                            artifactIdNode.setNodeValue(artifactId);
-                        } else {
-                            throw new IllegalStateException("Could not find " + xPathExpression + " in " + context.pomXmlPath);
-                        }
-
-                    }
-                    if (relativePath == null) {
-                        /* remove relativePath */
-                        final String xPathExpression = anyNs("project", "parent", "relativePath");
-                        Node node = (Node) context.getXPath().evaluate(
-                                xPathExpression, document,
-                                XPathConstants.NODE);
-                        if (node != null) {
-                            final Node prevSibling = node.getPreviousSibling();
-                            if (prevSibling != null && prevSibling.getNodeType() == Node.TEXT_NODE
-                                    && WS_PATTERN.matcher(prevSibling.getTextContent()).matches()) {
-                                /* remove any preceding whitespace */
-                                prevSibling.getParentNode().removeChild(prevSibling);
-                            }
-                            node.getParentNode().removeChild(node);
-                        }
-                    } else {
-                        /* Add or set relativePath */
-                        final String xPathExpression = anyNs("project", "parent", "relativePath");
-                        Node node = (Node) context.getXPath().evaluate(
-                                xPathExpression, document,
-                                XPathConstants.NODE);
-                        if (node != null) {
-                            node.getFirstChild().setNodeValue(relativePath);
-                        } else {
-                            node = document.createElement("relativePath");
-                            ((Node) context.getXPath().evaluate(
-                                    anyNs("project", "parent"), document,
-                                    XPathConstants.NODE)).appendChild(node);
-                            final Text text = document.createTextNode(relativePath);
-                            node.appendChild(text);
+                final Element parent = childElement(document, "project", "parent");
+                final Element artifactIdNode = parent == null ? null : childElement(parent, "artifactId");
+                if (artifactIdNode == null) {
+                    throw new IllegalStateException("Could not find project/parent/artifactId in " + context.pomXmlPath);
+                }
+                artifactIdNode.setTextContent(artifactId);
+
+                final Element relativePathNode = childElement(parent, "relativePath");
+                if (relativePath == null) {
+                    /* remove relativePath */
+                    if (relativePathNode != null) {
+                        final Node prevSibling = relativePathNode.getPreviousSibling();
+                        if (prevSibling != null && prevSibling.getNodeType() == Node.TEXT_NODE
+                                && WS_PATTERN.matcher(prevSibling.getTextContent()).matches()) {
+                            /* remove any preceding whitespace */
+                            parent.removeChild(prevSibling);
                         }
+                        parent.removeChild(relativePathNode);
                     }
-                } catch (XPathExpressionException | DOMException e) {
-                    throw new RuntimeException(e);
+                } else if (relativePathNode != null) {
+                    /* Set relativePath */
+                    relativePathNode.setTextContent(relativePath);
+                } else {
+                    /* Add relativePath */
+                    final Element node = document.createElement("relativePath");
+                    parent.appendChild(node);
+                    node.appendChild(document.createTextNode(relativePath));
                 }
             };
         }
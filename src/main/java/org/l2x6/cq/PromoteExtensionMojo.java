@@ -136,8 +136,8 @@ public class PromoteExtensionMojo extends AbstractMojo {
 
         /* Add the test module to its new parent module */
         final Path integrationTestsPomPath = sourceRootPath.resolve("integration-tests/pom.xml");
-        new PomTransformer(integrationTestsPomPath, charset).transform(Transformation.addModule(artifactIdBase));
-        PomSorter.sortModules(integrationTestsPomPath);
+        new PomTransformer(integrationTestsPomPath, charset).transform(Transformation.addModule(artifactIdBase),
+                Transformation.sortModules());
 
         /* Move the extension */
         try {
@@ -152,8 +152,8 @@ public class PromoteExtensionMojo extends AbstractMojo {
 
         /* Add the extension module to its new parent module */
         final Path destExtensionsPomPath = extensionsPath.resolve("pom.xml");
-        new PomTransformer(destExtensionsPomPath, charset).transform(Transformation.addModule(artifactIdBase));
-        PomSorter.sortModules(destExtensionsPomPath);
+        new PomTransformer(destExtensionsPomPath, charset).transform(Transformation.addModule(artifactIdBase),
+                Transformation.sortModules());
 
         /* Set the camel.quarkus.nativeSince property in the runtime POM */
         final Path runtimePomPath = destParentDir.resolve("runtime/pom.xml");
@@ -18,6 +18,7 @@ package org.l2x6.cq;
 
 import java.io.File;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -85,9 +86,20 @@ public class SyncExamplePropertiesMojo extends AbstractMojo {
             cqVersion = exampleProps.getProperty("camel-quarkus.version");
         }
 
-        final Path cqPomPath = CqUtils.copyArtifact(localRepositoryPath, "org.apache.camel.quarkus", "camel-quarkus", cqVersion,
-                "pom");
-        final Model cqModel = CqUtils.readPom(cqPomPath, charset);
+        final Path localCqPomPath = CqUtils.artifactPath(localRepositoryPath, "org.apache.camel.quarkus", "camel-quarkus",
+                cqVersion, "pom");
+        final Model cqModel;
+        if (Files.exists(localCqPomPath)) {
+            cqModel = CqUtils.readPom(localCqPomPath, charset);
+        } else {
+            final Path cqPomPath = CqUtils.copyArtifact(localRepositoryPath, "org.apache.camel.quarkus", "camel-quarkus",
+                    cqVersion, "pom");
+            try {
+                cqModel = CqUtils.readPom(cqPomPath, charset);
+            } finally {
+                CqUtils.deleteQuietly(cqPomPath);
+            }
+        }
         final Properties cqProps = cqModel.getProperties();
         cqProps.put("camel-quarkus.version", cqVersion);
 
@@ -19,17 +19,18 @@ package org.l2x6.cq;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 import org.apache.camel.tooling.model.ArtifactModel;
-import org.apache.maven.model.Model;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -71,9 +72,13 @@ public class UpdateQuarkusMetadataMojo extends AbstractExtensionListMojo {
     @Parameter(defaultValue = CqUtils.DEFAULT_ENCODING, required = true, property = "cq.encoding")
     String encoding;
 
+    @Parameter(defaultValue = "${settings.localRepository}", readonly = true)
+    String localRepository;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
-        final CqCatalog catalog = new CqCatalog(Flavor.camel);
+        final CqCatalog catalog = new CqCatalog(Flavor.camel,
+                localRepository == null ? null : Paths.get(localRepository));
         final List<String> errors = new ArrayList<>();
         CqUtils.findExtensions(extensionDirectories.stream().map(File::toPath).sorted(),
                 artifactIdBase -> !skipArtifactIdBases.contains(artifactIdBase))
@@ -83,10 +88,15 @@ public class UpdateQuarkusMetadataMojo extends AbstractExtensionListMojo {
                             .resolve("runtime/src/main/resources/META-INF/quarkus-extension.yaml");
                     getLog().info("Regenerating " + rootDir.toPath().relativize(quarkusExtensionsYamlPath));
                     final List<ArtifactModel<?>> models = catalog.primaryModel(artifactIdBase);
-                    final Model runtimePom = CqUtils.readPom(extModule.getRuntimePomPath(), StandardCharsets.UTF_8);
+                    final PomQuery runtimePom = PomQuery.builder()
+                            .value("project/name")
+                            .value("project/description")
+                            .values("project/properties/*")
+                            .read(extModule.getRuntimePomPath(), StandardCharsets.UTF_8);
+                    final Map<String, String> props = runtimePom.getValueMap("project/properties/*");
                     final Path relativeRuntimePomPath = rootDir.toPath().relativize(extModule.getRuntimePomPath());
 
-                    final String name = runtimePom.getName();
+                    final String name = runtimePom.getValue("project/name");
                     if (!name.endsWith(NAME_SUFFIX)) {
                         throw new RuntimeException("The name in " + relativeRuntimePomPath +" must end with '"+ NAME_SUFFIX +"'; found: " + name);
                     }
@@ -95,12 +105,12 @@ public class UpdateQuarkusMetadataMojo extends AbstractExtensionListMojo {
                         throw new RuntimeException("The name in " + relativeRuntimePomPath +" must start with '<whatever> :: '; found: " + name);
                     }
                     final String titleBase = name.substring(startDelimPos + 4, name.length() - NAME_SUFFIX.length());
-                    final String rawKeywords = (String) runtimePom.getProperties().getProperty("quarkus.metadata.keywords");
+                    final String rawKeywords = props.get("quarkus.metadata.keywords");
                     final List<String> keywords = rawKeywords != null ? Arrays.asList(rawKeywords.split(",")) : Collections.emptyList();
-                    final boolean unlisted = !extModule.isNativeSupported() || Boolean.parseBoolean(runtimePom.getProperties().getProperty("quarkus.metadata.unlisted", "false"));
-                    final boolean deprecated = models.stream().anyMatch(ArtifactModel::isDeprecated) || Boolean.parseBoolean(runtimePom.getProperties().getProperty("quarkus.metadata.deprecated", "false"));
+                    final boolean unlisted = !extModule.isNativeSupported() || Boolean.parseBoolean(props.getOrDefault("quarkus.metadata.unlisted", "false"));
+                    final boolean deprecated = models.stream().anyMatch(ArtifactModel::isDeprecated) || Boolean.parseBoolean(props.getOrDefault("quarkus.metadata.deprecated", "false"));
 
-                    final TemplateParams templateParams = CqUtils.quarkusExtensionYamlParams(models, artifactIdBase, titleBase, runtimePom.getDescription(), keywords, unlisted, deprecated, extModule.isNativeSupported(), rootDir.toPath(), getLog(), errors);
+                    final TemplateParams templateParams = CqUtils.quarkusExtensionYamlParams(models, artifactIdBase, titleBase, runtimePom.getValue("project/description"), keywords, unlisted, deprecated, extModule.isNativeSupported(), rootDir.toPath(), getLog(), errors);
                     final Configuration cfg = CqUtils.getTemplateConfig(rootDir.toPath(), CqUtils.DEFAULT_TEMPLATES_URI_BASE,
                             templatesUriBase, encoding);
 
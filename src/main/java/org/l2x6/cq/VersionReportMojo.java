@@ -16,15 +16,21 @@
  */
 package org.l2x6.cq;
 
-import java.nio.file.NoSuchFileException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
+import java.util.regex.Pattern;
 
-import org.apache.camel.tooling.model.BaseModel;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -32,6 +38,9 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.l2x6.cq.CqCatalog.Flavor;
 import org.l2x6.cq.CqCatalog.GavCqCatalog;
 
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+
 /**
  * Prepares a report upon releasing a new Camel Quarkus version.
  *
@@ -41,13 +50,28 @@ import org.l2x6.cq.CqCatalog.GavCqCatalog;
 public class VersionReportMojo extends AbstractExtensionListMojo {
 
     /**
-     * Two Camel Quarkus versions to compare, delimited by {@code ..}, e.g. {@code -Dcq.versions=1.0.0.M6..1.0.0.M7}.
+     * Two or more Camel Quarkus versions to compare, delimited by {@code ..}, e.g.
+     * {@code -Dcq.versions=1.0.0.M6..1.0.0.M7}. If more than two versions are given, e.g.
+     * {@code -Dcq.versions=1.0.0..1.1.0..1.2.0}, a separate report is produced for each pair of adjacent versions. The
+     * catalogs are fetched and opened concurrently using as many threads in total as there are CPU cores but no more
+     * than 8; the threads are split between fetching several versions at once and parsing each one of them.
+     * All catalogs stay in memory until the end, so memory use grows with the number of versions in the chain.
      *
      * @since 0.3.0
      */
     @Parameter(property = "cq.versions")
     String versions;
 
+    /**
+     * If set, the differences between the {@link #versions} are also written to the given file in JSON format: an
+     * array with one object per pair of adjacent versions listing the added, removed, native-promoted and newly
+     * deprecated models per kind.
+     *
+     * @since 0.24.0
+     */
+    @Parameter(property = "cq.jsonFile")
+    File jsonFile;
+
     @Parameter(defaultValue = "${settings.localRepository}", readonly = true)
     String localRepository;
 
@@ -57,66 +81,103 @@ public class VersionReportMojo extends AbstractExtensionListMojo {
             skipArtifactIdBases = Collections.emptySet();
         }
         final Path localRepositoryPath = Paths.get(localRepository);
-        final String delim = "..";
-        final int delimPos = versions.indexOf(delim);
-        if (delimPos <= 0) {
-            throw new IllegalStateException("Expected versions delimited by '..': found '"+ versions +"'");
-        }
-        final String baselineVersion = versions.substring(0, delimPos);
-        final String reportVersion = versions.substring(delimPos + delim.length());
-        final List<String> versions = Arrays.asList(baselineVersion, reportVersion);
-        final StringBuilder counts = new StringBuilder();
-        final StringBuilder details = new StringBuilder();
-
-        try (GavCqCatalog currentCatalog = GavCqCatalog.open(localRepositoryPath, Flavor.camelQuarkus, reportVersion);
-                GavCqCatalog previousCatalog = GavCqCatalog.open(localRepositoryPath, Flavor.camelQuarkus, baselineVersion)) {
+        final List<String> versions = parseVersions(this.versions);
+        final List<String> distinctVersions = new ArrayList<>(new LinkedHashSet<>(versions));
 
-            CqCatalog.kinds().forEach(kind -> {
-                final String pluralName = CqUtils.toCapCamelCase(kind.name() + "s");
-                final AtomicInteger cnt = new AtomicInteger();
-                final String kindItem = pluralName + ":\n";
-                details.append(kindItem);
-                currentCatalog.models(kind)
-                        .sorted(BaseModel.compareTitle())
-                        .forEach(currentModel -> {
-                            if (reportVersion.equals(currentModel.getFirstVersion())) {
-                                /* added in this version */
-                                details.append("• ").append(currentModel.getTitle());
-                                if (!currentModel.isNativeSupported()) {
-                                    details.append(" (JVM only)");
-                                }
-                                details.append('\n');
-                                cnt.incrementAndGet();
-                            } else {
-                                /* added earlier */
-                                if (currentModel.isNativeSupported()) {
-                                    /* It is native now, check whether was JVM in the previous version */
-                                    try {
-                                        BaseModel<?> previousModel = previousCatalog.load(kind, currentModel.getName());
-                                        if (previousModel != null && !previousModel.isNativeSupported()) {
-                                            details.append("• ").append(currentModel.getTitle()).append(" +native")
-                                                    .append('\n');
-                                        }
-                                    } catch (RuntimeException e) {
-                                        if (e.getCause().getClass() == NoSuchFileException.class) {
+        final List<GavCqCatalog> opened = Collections.synchronizedList(new ArrayList<>());
+        Throwable inFlight = null;
+        try {
+            /*
+             * Downloading and parsing the catalogs is the slow part, so we do it for several versions at once. The
+             * LOAD_THREADS budget is split between the versions and the schema parsing inside each index() call, so
+             * that no more than LOAD_THREADS threads parse at any time.
+             */
+            final int threads = Math.min(distinctVersions.size(), CqCatalog.LOAD_THREADS);
+            final int loadThreads = Math.max(1, CqCatalog.LOAD_THREADS / threads);
+            final List<GavCqCatalog> catalogs = CqUtils.mapParallel(threads, distinctVersions, version -> {
+                final GavCqCatalog catalog = GavCqCatalog.open(localRepositoryPath, Flavor.camelQuarkus, version);
+                opened.add(catalog);
+                catalog.index(loadThreads);
+                return catalog;
+            });
+            final Map<String, GavCqCatalog> catalogsByVersion = new HashMap<>();
+            for (int i = 0; i < distinctVersions.size(); i++) {
+                catalogsByVersion.put(distinctVersions.get(i), catalogs.get(i));
+            }
+            final JsonArray json = new JsonArray();
+            for (int i = 1; i < versions.size(); i++) {
+                final String baselineVersion = versions.get(i - 1);
+                final String reportVersion = versions.get(i);
+                final CatalogDiff diff = CatalogDiff.compute(baselineVersion, catalogsByVersion.get(baselineVersion),
+                        reportVersion, catalogsByVersion.get(reportVersion));
+                report(diff, versions.size() > 2);
+                json.add(diff.toJson());
+            }
+            if (jsonFile != null) {
+                final Path jsonPath = jsonFile.toPath();
+                try {
+                    Files.createDirectories(jsonPath.toAbsolutePath().getParent());
+                } catch (IOException e) {
+                    throw new RuntimeException("Could not create " + jsonPath.toAbsolutePath().getParent(), e);
+                }
+                CqUtils.write(jsonPath, new GsonBuilder().setPrettyPrinting().create().toJson(json) + "\n",
+                        StandardCharsets.UTF_8, true);
+                getLog().info("Wrote " + jsonPath);
+            }
+        } catch (RuntimeException | Error e) {
+            inFlight = e;
+            throw e;
+        } finally {
+            synchronized (opened) {
+                closeAll(opened, inFlight);
+            }
+        }
+    }
 
-                                        }
-                                    }
-                                }
-                            }
-                        });
-                if (cnt.get() == 0) {
-                    details.delete(details.length() - kindItem.length(), details.length());
+    /**
+     * Closes all given {@code catalogs} even if some of them fail to close.
+     *
+     * @param catalogs the catalogs to close
+     * @param inFlight the exception thrown before closing, if any; close failures are attached to it as suppressed
+     *        exceptions
+     * @throws RuntimeException the first close failure with the others attached as suppressed exceptions, unless
+     *         {@code inFlight} is not {@code null}
+     */
+    static void closeAll(List<? extends AutoCloseable> catalogs, Throwable inFlight) {
+        RuntimeException closeFailure = null;
+        for (AutoCloseable catalog : catalogs) {
+            try {
+                catalog.close();
+            } catch (Exception e) {
+                if (inFlight != null) {
+                    inFlight.addSuppressed(e);
+                } else if (closeFailure == null) {
+                    closeFailure = e instanceof RuntimeException
+                            ? (RuntimeException) e
+                            : new RuntimeException("Could not close " + catalog, e);
                 } else {
-                    counts.append("• ").append(cnt.get()).append(" new ").append(kind.name()).append("s\n");
+                    closeFailure.addSuppressed(e);
                 }
-            });
+            }
         }
+        if (closeFailure != null) {
+            throw closeFailure;
+        }
+    }
 
-        getLog().info("Counts:\n\n\n" + counts.toString() + "\n\n");
-        getLog().info("Report:\n\n\n" + details.toString() + "\n\n");
-
+    static List<String> parseVersions(String versions) {
+        final String delim = "..";
+        final List<String> result = Arrays.asList(versions.split(Pattern.quote(delim), -1));
+        if (result.size() < 2 || result.stream().anyMatch(String::isEmpty)) {
+            throw new IllegalStateException("Expected versions delimited by '"+ delim +"': found '"+ versions +"'");
+        }
+        return result;
+    }
 
+    void report(CatalogDiff diff, boolean logVersions) {
+        final String range = logVersions ? " " + diff.getBaselineVersion() + ".." + diff.getReportVersion() : "";
+        getLog().info("Counts" + range + ":\n\n\n" + diff.appendCounts(new StringBuilder()).toString() + "\n\n");
+        getLog().info("Report" + range + ":\n\n\n" + diff.appendDetails(new StringBuilder()).toString() + "\n\n");
     }
 
 }
@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.camel.catalog.Kind;
+import org.apache.camel.tooling.model.ArtifactModel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.l2x6.cq.CatalogDiff.KindDiff;
+
+public class CatalogDiffTest {
+
+    static Map<String, ArtifactModel<?>> components(ArtifactModel<?>... models) {
+        final Map<String, ArtifactModel<?>> result = new LinkedHashMap<>();
+        for (ArtifactModel<?> model : models) {
+            result.put(model.getName(), model);
+        }
+        return result;
+    }
+
+    static ArtifactModel<?> component(String name, boolean deprecated, boolean nativeSupported) {
+        return CatalogSnapshotTest.model(Kind.component, name, "camel-quarkus-" + name,
+                Character.toUpperCase(name.charAt(0)) + name.substring(1), null, null, "1.0.0", deprecated,
+                nativeSupported);
+    }
+
+    static List<String> names(List<ArtifactModel<?>> models) {
+        return models.stream().map(ArtifactModel::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    void diff() {
+        final KindDiff diff = KindDiff.compute(
+                components(
+                        component("file", false, true),
+                        component("ftp", false, false),
+                        component("jms", false, false),
+                        component("removed", false, true)),
+                components(
+                        component("zip", false, false),
+                        component("file", true, true),
+                        component("ftp", false, true),
+                        component("jms", false, false),
+                        component("added", false, true)));
+        Assertions.assertEquals(Arrays.asList("zip", "added"), names(diff.getAdded()));
+        Assertions.assertEquals(Arrays.asList("removed"), names(diff.getRemoved()));
+        Assertions.assertEquals(Arrays.asList("ftp"), names(diff.getNativePromoted()));
+        Assertions.assertEquals(Arrays.asList("file"), names(diff.getDeprecated()));
+
+        final Map<Kind, KindDiff> kinds = new LinkedHashMap<>();
+        kinds.put(Kind.component, diff);
+        final KindDiff empty = KindDiff.compute(Collections.emptyMap(), Collections.emptyMap());
+        kinds.put(Kind.dataformat, empty);
+        final CatalogDiff catalogDiff = new CatalogDiff("1.0.0", "1.1.0", kinds);
+        Assertions.assertEquals("• 2 new components\n", catalogDiff.appendCounts(new StringBuilder()).toString());
+        Assertions.assertEquals("Components:\n"
+                + "• Added\n"
+                + "• Ftp +native\n"
+                + "• Zip (JVM only)\n",
+                catalogDiff.appendDetails(new StringBuilder()).toString());
+        Assertions.assertEquals("removed", catalogDiff.toJson().getAsJsonObject("components").getAsJsonArray("removed")
+                .get(0).getAsJsonObject().get("name").getAsString());
+    }
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.camel.catalog.Kind;
+import org.apache.camel.tooling.model.ArtifactModel;
+import org.apache.camel.tooling.model.ComponentModel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CatalogSnapshotTest {
+
+    static Map<Kind, List<ArtifactModel<?>>> models() {
+        final ComponentModel component = (ComponentModel) model(Kind.component, "file", "camel-file", "File",
+                "Read and write files.", "file,core", "1.0.0", true, false);
+        component.setAlternativeSchemes("file,file2");
+        final Map<Kind, List<ArtifactModel<?>>> result = new LinkedHashMap<>();
+        result.put(Kind.component, Arrays.asList(component,
+                model(Kind.component, "ftp", "camel-ftp", "FTP", null, "file", "1.1.0", false, true)));
+        result.put(Kind.dataformat, Arrays.asList(
+                model(Kind.dataformat, "csv", "camel-csv", "CSV", "Handle CSV payloads. é中", "dataformat,transformation",
+                        "1.3.0", false, true)));
+        result.put(Kind.language, Arrays.asList(
+                model(Kind.language, "simple", "camel-core-languages", "Simple", null, null, "1.0.0", false, true)));
+        result.put(Kind.other, Arrays.asList(
+                model(Kind.other, "main", "camel-main", "Main", null, null, null, true, true)));
+        return result;
+    }
+
+    static ArtifactModel<?> model(Kind kind, String name, String artifactId, String title, String description,
+            String label, String firstVersion, boolean deprecated, boolean nativeSupported) {
+        final ArtifactModel<?> result = CatalogSnapshot.newModel(kind);
+        result.setName(name);
+        result.setArtifactId(artifactId);
+        result.setTitle(title);
+        result.setDescription(description);
+        result.setLabel(label);
+        result.setFirstVersion(firstVersion);
+        result.setDeprecated(deprecated);
+        result.setNativeSupported(nativeSupported);
+        return result;
+    }
+
+    static void assertModels(Map<Kind, List<ArtifactModel<?>>> expected, Map<Kind, List<ArtifactModel<?>>> actual) {
+        Assertions.assertNotNull(actual);
+        Assertions.assertEquals(expected.keySet(), actual.keySet());
+        for (Entry<Kind, List<ArtifactModel<?>>> e : expected.entrySet()) {
+            final List<ArtifactModel<?>> expectedModels = e.getValue();
+            final List<ArtifactModel<?>> actualModels = actual.get(e.getKey());
+            Assertions.assertEquals(expectedModels.size(), actualModels.size());
+            for (int i = 0; i < expectedModels.size(); i++) {
+                final ArtifactModel<?> exp = expectedModels.get(i);
+                final ArtifactModel<?> act = actualModels.get(i);
+                Assertions.assertEquals(exp.getClass(), act.getClass());
+                Assertions.assertEquals(exp.getName(), act.getName());
+                Assertions.assertEquals(exp.getArtifactId(), act.getArtifactId());
+                Assertions.assertEquals(exp.getTitle(), act.getTitle());
+                Assertions.assertEquals(exp.getDescription(), act.getDescription());
+                Assertions.assertEquals(exp.getLabel(), act.getLabel());
+                Assertions.assertEquals(exp.getFirstVersion(), act.getFirstVersion());
+                Assertions.assertEquals(exp.isDeprecated(), act.isDeprecated());
+                Assertions.assertEquals(exp.isNativeSupported(), act.isNativeSupported());
+                if (exp instanceof ComponentModel) {
+                    Assertions.assertEquals(((ComponentModel) exp).getAlternativeSchemes(),
+                            ((ComponentModel) act).getAlternativeSchemes());
+                }
+            }
+        }
+    }
+
+    @Test
+    void encodeDecode() {
+        final Map<Kind, List<ArtifactModel<?>>> models = models();
+        final byte[] bytes = CatalogSnapshot.encode("1.2.3", models);
+        assertModels(models, CatalogSnapshot.decode(ByteBuffer.wrap(bytes), "1.2.3"));
+
+        /* Stale */
+        Assertions.assertNull(CatalogSnapshot.decode(ByteBuffer.wrap(bytes), "1.2.4"));
+        /* Truncated */
+        Assertions.assertNull(CatalogSnapshot.decode(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 3)), "1.2.3"));
+    }
+
+    @Test
+    void writeRead() throws IOException {
+        final Path file = CatalogSnapshot.path(Paths.get("target/CatalogSnapshotTest/repository"), "org.apache.camel",
+                "camel-catalog", "1.2.3");
+        Files.deleteIfExists(file);
+        Assertions.assertNull(CatalogSnapshot.read(file, "1.2.3"));
+
+        final Map<Kind, List<ArtifactModel<?>>> models = models();
+        Assertions.assertTrue(CatalogSnapshot.write(file, "1.2.3", models));
+        assertModels(models, CatalogSnapshot.read(file, "1.2.3"));
+        Assertions.assertNull(CatalogSnapshot.read(file, "1.2.3:42:42"));
+    }
+
+}
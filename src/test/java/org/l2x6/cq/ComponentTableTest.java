@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.l2x6.cq.ComponentTable.Format;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class ComponentTableTest {
+
+    static final ComponentTable TABLE = new ComponentTable(Arrays.asList(
+            new String[] { "AWS S3", "aws-s3", "camel-aws-s3", "component", "false", "cloud,file", "aws", "Native" },
+            new String[] { "File", "file", "camel-file", "component", "true", null, "file", "n/a" },
+            new String[] { "Zürich \"quoted\"", "zurich", "camel-zurich", "component", "false", "cloud,file",
+                    "", "JVM" }));
+
+    @Test
+    void csv() throws IOException {
+        final Path dir = TestUtils.newProjectDir("component-table-csv");
+        final Path file = dir.resolve("components" + Format.csv.getExtension());
+        TABLE.write(Format.csv, file);
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Assertions.assertEquals(4, lines.size());
+        Assertions.assertTrue(lines.get(0).startsWith("Priority\tName\tScheme\t"));
+        Assertions.assertEquals("\tAWS S3\taws-s3\tcamel-aws-s3\tcomponent\tfalse\tcloud,file\taws\tNative", lines.get(1));
+        Assertions.assertEquals("\tFile\tfile\tcamel-file\tcomponent\ttrue\t\tfile\tn/a", lines.get(2));
+    }
+
+    @Test
+    void jsonLines() throws IOException {
+        final Path dir = TestUtils.newProjectDir("component-table-jsonl");
+        final Path file = dir.resolve("components" + Format.jsonl.getExtension());
+        TABLE.write(Format.jsonl, file);
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Assertions.assertEquals(3, lines.size());
+        final JsonObject file1 = new JsonParser().parse(lines.get(1)).getAsJsonObject();
+        Assertions.assertEquals("file", file1.get("scheme").getAsString());
+        Assertions.assertTrue(file1.get("deprecated").getAsBoolean());
+        Assertions.assertTrue(file1.get("label").isJsonNull());
+        Assertions.assertEquals("Zürich \"quoted\"",
+                new JsonParser().parse(lines.get(2)).getAsJsonObject().get("title").getAsString());
+    }
+
+    @Test
+    void columnar() throws IOException {
+        final Path dir = TestUtils.newProjectDir("component-table-columnar");
+        final Path file = dir.resolve("components" + Format.columnar.getExtension());
+        TABLE.write(Format.columnar, file);
+        final Map<String, List<String>> columns = ComponentTable.readColumnar(file);
+        Assertions.assertEquals(ComponentTable.COLUMNS, Arrays.asList(columns.keySet().toArray(new String[0])));
+        for (int c = 0; c < ComponentTable.COLUMNS.size(); c++) {
+            final List<String> values = columns.get(ComponentTable.COLUMNS.get(c));
+            for (int r = 0; r < TABLE.getRows().size(); r++) {
+                Assertions.assertEquals(TABLE.getRows().get(r)[c], values.get(r));
+            }
+        }
+    }
+
+    @Test
+    void unsupportedFormat() {
+        Assertions.assertEquals(Format.jsonl, Format.of(" JSONL"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Format.of("xlsx"));
+    }
+
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.camel.catalog.DefaultCamelCatalog;
+import org.apache.camel.catalog.Kind;
+import org.apache.camel.tooling.model.ArtifactModel;
+import org.apache.camel.tooling.model.BaseModel;
+import org.apache.camel.tooling.model.ComponentModel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.l2x6.cq.CqCatalog.Flavor;
+
+public class CqCatalogTest {
+
+    static List<String> keys(Stream<? extends BaseModel<?>> models) {
+        return models
+                .map(m -> m.getKind() + ":" + m.getName() + ":" + ((ArtifactModel<?>) m).getArtifactId())
+                .collect(Collectors.toList());
+    }
+
+    /** The way models() worked before the {@link CqCatalog.Index} was introduced */
+    static Stream<ArtifactModel<?>> unindexedModels(CqCatalog catalog) {
+        return CqCatalog.kinds().flatMap(catalog::loadModels);
+    }
+
+    /** The selection done by {@link CqCatalog#primaryModel(String)} applied to the given filtered models */
+    static List<ArtifactModel<?>> unindexedPrimaryModel(List<ArtifactModel<?>> filtered) {
+        final List<ArtifactModel<?>> models = filtered.stream()
+                .filter(CqCatalog::isFirstScheme)
+                .filter(m -> !m.getName().startsWith("google-") || !m.getName().endsWith("-stream"))
+                .collect(Collectors.toList());
+        if (models.size() > 1) {
+            final List<ArtifactModel<?>> componentModels = models.stream()
+                    .filter(m -> m.getKind().equals("component"))
+                    .collect(Collectors.toList());
+            if (componentModels.size() == 1) {
+                return componentModels;
+            }
+        }
+        return models;
+    }
+
+    @Test
+    void index() {
+        final CqCatalog catalog = new CqCatalog(Flavor.camel);
+
+        final List<String> expected = keys(unindexedModels(catalog));
+        Assertions.assertFalse(expected.isEmpty());
+        Assertions.assertEquals(expected, keys(catalog.models()));
+        CqCatalog.kinds().forEach(kind -> Assertions.assertEquals(keys(catalog.loadModels(kind)),
+                keys(catalog.models(kind)), kind.name()));
+
+        for (String cqArtifactIdBase : Arrays.asList("core", "ftp", "google-pubsub", "no-such-artifact")) {
+            final List<String> camelArtifactIds = catalog.toCamelArtifactIdBase(cqArtifactIdBase);
+            final List<ArtifactModel<?>> filtered = unindexedModels(catalog)
+                    .filter(m -> camelArtifactIds.contains(m.getArtifactId()))
+                    .collect(Collectors.toList());
+            Assertions.assertEquals(keys(filtered.stream()), keys(catalog.filterModels(cqArtifactIdBase)),
+                    cqArtifactIdBase);
+            Assertions.assertEquals(keys(unindexedPrimaryModel(filtered).stream()),
+                    keys(catalog.primaryModel(cqArtifactIdBase).stream()), cqArtifactIdBase);
+        }
+        Assertions.assertFalse(catalog.primaryModel("core").isEmpty());
+
+        catalog.models().forEach(m -> {
+            final Kind kind = Kind.valueOf(m.getKind());
+            Assertions.assertSame(m, catalog.load(kind, m.getName()));
+        });
+    }
+
+    @Test
+    void loadAllModelsParallel() {
+        final CqCatalog catalog = new CqCatalog(Flavor.camel);
+        final Map<Kind, List<ArtifactModel<?>>> sequential = catalog.loadAllModels(1);
+        /* More threads than LOAD_THREADS so that the test is meaningful also on machines with few cores */
+        final Map<Kind, List<ArtifactModel<?>>> parallel = catalog.loadAllModels(Math.max(CqCatalog.LOAD_THREADS, 4));
+        Assertions.assertEquals(CqCatalog.kinds().collect(Collectors.toList()), new ArrayList<>(sequential.keySet()));
+        Assertions.assertEquals(sequential.keySet(), parallel.keySet());
+        CqCatalog.kinds().forEach(kind -> {
+            final List<String> expected = keys(catalog.loadModels(kind));
+            Assertions.assertEquals(expected, keys(sequential.get(kind).stream()), kind.name());
+            Assertions.assertEquals(expected, keys(parallel.get(kind).stream()), kind.name());
+        });
+    }
+
+    @Test
+    void snapshot() throws IOException {
+        final Path localRepository = Paths.get("target/CqCatalogTest/repository");
+        final Flavor flavor = Flavor.camel;
+        final String version = new DefaultCamelCatalog(true).getCatalogVersion();
+        final Path snapshotFile = CatalogSnapshot.path(localRepository, flavor.getGroupId(), flavor.getArtifactId(),
+                version);
+        Files.deleteIfExists(snapshotFile);
+        /* The stamp depends on the jar in the local repository, the same way as for GavCqCatalog */
+        final Path localJar = CqUtils.artifactPath(localRepository, flavor.getGroupId(), flavor.getArtifactId(),
+                version, "jar");
+        Files.createDirectories(localJar.getParent());
+        Files.write(localJar, new byte[] { 42 });
+
+        final CqCatalog first = new CqCatalog(flavor, localRepository);
+        final List<String> expected = keys(first.models());
+        Assertions.assertFalse(expected.isEmpty());
+        /* Parsed from the JSON schemas */
+        Assertions.assertNotNull(((ComponentModel) first.models(Kind.component).findFirst().get()).getJavaType());
+        Assertions.assertTrue(Files.exists(snapshotFile));
+        Assertions.assertNotNull(CatalogSnapshot.read(snapshotFile, CqCatalog.snapshotStamp(localJar, version)));
+
+        final CqCatalog second = new CqCatalog(flavor, localRepository);
+        Assertions.assertEquals(expected, keys(second.models()));
+        /* Read from the snapshot that does not store the javaType */
+        Assertions.assertNull(((ComponentModel) second.models(Kind.component).findFirst().get()).getJavaType());
+        for (String cqArtifactIdBase : Arrays.asList("core", "ftp", "google-pubsub")) {
+            Assertions.assertEquals(keys(first.primaryModel(cqArtifactIdBase).stream()),
+                    keys(second.primaryModel(cqArtifactIdBase).stream()), cqArtifactIdBase);
+        }
+        /* load() parses the complete model */
+        final ArtifactModel<?> partial = second.models(Kind.component).findFirst().get();
+        final ComponentModel complete = (ComponentModel) second.load(Kind.component, partial.getName());
+        Assertions.assertEquals(partial.getName(), complete.getName());
+        Assertions.assertNotNull(complete.getJavaType());
+    }
+
+    @Test
+    void loadMissing() {
+        final String name = "no-such-component";
+        BaseModel<?> expected;
+        try {
+            expected = new DefaultCamelCatalog(true).model(Kind.component, name);
+        } catch (RuntimeException e) {
+            /* The underlying catalog reports the missing model by throwing and so should load() */
+            Assertions.assertThrows(e.getClass(), () -> new CqCatalog(Flavor.camel).load(Kind.component, name));
+            return;
+        }
+        Assertions.assertNull(expected);
+        Assertions.assertNull(new CqCatalog(Flavor.camel).load(Kind.component, name));
+    }
+
+}
@@ -16,11 +16,28 @@
  */
 package org.l2x6.cq;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.jupiter.api.Test;
+import org.l2x6.cq.CqCatalog.Flavor;
+import org.l2x6.cq.CqCatalog.GavCqCatalog;
 
 public class CqUtilsTest {
 
@@ -39,4 +56,88 @@ public class CqUtilsTest {
         assertEquals("foo-bar-baz", CqUtils.toKebabCase("foo+-BAR.baZ"));
     }
 
+    @Test
+    void mapParallel() {
+        final List<Integer> items = IntStream.range(0, 200).boxed().collect(Collectors.toList());
+        final List<String> expected = items.stream().map(i -> "item-" + i).collect(Collectors.toList());
+        assertEquals(expected, CqUtils.mapParallel(4, items, i -> "item-" + i));
+        assertEquals(expected, CqUtils.mapParallel(1, items, i -> "item-" + i));
+        assertEquals(expected, CqUtils.mapParallel(0, items, i -> "item-" + i));
+    }
+
+    @Test
+    void mapParallelFailure() {
+        final List<Integer> items = IntStream.range(0, 20).boxed().collect(Collectors.toList());
+        try {
+            CqUtils.mapParallel(4, items, i -> {
+                if (i == 3) {
+                    throw new IllegalStateException("failed " + i);
+                }
+                return i;
+            });
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            assertEquals("failed 3", e.getMessage());
+        }
+    }
+
+    @Test
+    void readWriteText() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < 3 * CqUtils.CODER_BUFFER_SIZE; i++) {
+            sb.append("<module>\u010du\u010doriedka-").append(i).append("-\u20ac\ud83d\ude00</module>\n");
+        }
+        final String text = sb.toString();
+        final Path dir = TestUtils.newProjectDir("cq-utils-read-write-text");
+
+        for (Charset charset : Arrays.asList(StandardCharsets.UTF_8, StandardCharsets.UTF_16LE,
+                StandardCharsets.ISO_8859_1)) {
+            final Path file = dir.resolve(charset.name() + ".txt");
+            for (boolean atomic : new boolean[] { false, true }) {
+                CqUtils.write(file, text, charset, atomic);
+                /* Unmappable characters must be replaced in the same way as String.getBytes() does */
+                assertArrayEquals(text.getBytes(charset), Files.readAllBytes(file));
+                assertEquals(new String(text.getBytes(charset), charset), CqUtils.readText(file, charset).toString());
+            }
+        }
+    }
+
+    @Test
+    void gavCqCatalogOpenedInPlace() throws IOException {
+        final Path localRepository = TestUtils.newProjectDir("cq-utils-gav-catalog");
+        final Flavor flavor = Flavor.camel;
+        final Path jar = CqUtils.artifactPath(localRepository, flavor.getGroupId(), flavor.getArtifactId(), "1.2.3",
+                "jar");
+        Files.createDirectories(jar.getParent());
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry("org/apache/camel/catalog/components.properties"));
+            out.write("foo\n".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        final long mtime = Files.getLastModifiedTime(jar).toMillis();
+        try (GavCqCatalog catalog = GavCqCatalog.open(localRepository, flavor, "1.2.3")) {
+            /* No copy was made */
+            assertEquals(jar.toUri().getPath(),
+                    Paths.get(catalog.baseDir.getFileSystem().toString()).toUri().getPath());
+        }
+        /* The jar in the local repository was not touched */
+        assertTrue(Files.exists(jar));
+        assertEquals(mtime, Files.getLastModifiedTime(jar).toMillis());
+    }
+
+    @Test
+    void copyArtifact() throws IOException {
+        final Path localRepository = TestUtils.newProjectDir("cq-utils-copy-artifact");
+        final Path pom = CqUtils.artifactPath(localRepository, "org.foo", "bar", "1.2.3", "pom");
+        Files.createDirectories(pom.getParent());
+        Files.write(pom, "<project/>".getBytes(StandardCharsets.UTF_8));
+        final Path copy = CqUtils.copyArtifact(localRepository, "org.foo", "bar", "1.2.3", "pom");
+        try {
+            assertArrayEquals(Files.readAllBytes(pom), Files.readAllBytes(copy));
+        } finally {
+            CqUtils.deleteQuietly(copy);
+        }
+        assertFalse(Files.exists(copy));
+    }
+
 }
@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class FormatCacheTest {
+
+    @Test
+    void upToDate() throws IOException {
+        final Path baseDir = TestUtils.newProjectDir("format-cache");
+        final Path cacheFile = baseDir.resolve("target/cq-format-cache.properties");
+        final Path pomXml = baseDir.resolve("pom.xml");
+        Files.write(pomXml, "<project/>".getBytes(StandardCharsets.UTF_8));
+
+        final String fingerprint = FormatCache.fingerprint("1.0.0", "utf-8");
+        final FormatCache cache = FormatCache.load(cacheFile, baseDir, fingerprint);
+        Assertions.assertFalse(cache.isUpToDate(pomXml));
+        cache.update(pomXml);
+        cache.store();
+
+        Assertions.assertTrue(FormatCache.load(cacheFile, baseDir, fingerprint).isUpToDate(pomXml));
+        /* Changed inputs */
+        Assertions.assertFalse(
+                FormatCache.load(cacheFile, baseDir, FormatCache.fingerprint("1.0.1", "utf-8")).isUpToDate(pomXml));
+        /* Disabled cache */
+        Assertions.assertFalse(FormatCache.load(null, baseDir, fingerprint).isUpToDate(pomXml));
+
+        /* Changed content */
+        Files.write(pomXml, "<project></project>".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertFalse(FormatCache.load(cacheFile, baseDir, fingerprint).isUpToDate(pomXml));
+    }
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.camel.catalog.Kind;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LabelClassifierTest {
+
+    /** The hard coded rules used before they were moved to {@link LabelClassifier#DEFAULT_RULES} */
+    static String legacyPrimaryGroup(Kind kind, String rawLabels, String name) {
+        if (kind != Kind.component) {
+            return kind.name();
+        }
+        if (name.startsWith("aws")) {
+            return "aws";
+        }
+        if (name.startsWith("azure")) {
+            return "azure";
+        }
+        if (name.startsWith("google")) {
+            return "google";
+        }
+        if (name.startsWith("spring")) {
+            return "spring";
+        }
+        if (name.startsWith("kubernetes") || name.startsWith("openshift") || name.startsWith("openstack")
+                || name.startsWith("digitalocean")) {
+            return "cloud";
+        }
+        if (rawLabels != null) {
+            final Set<String> labels = new HashSet<>(Arrays.asList(rawLabels.split(",")));
+            if (labels.contains("core")) {
+                return "core";
+            } else if (labels.contains("file") || labels.contains("document")) {
+                return "file";
+            } else if (labels.contains("http") || labels.contains("websocket")) {
+                return "http";
+            } else if (labels.contains("messaging")) {
+                return "messaging";
+            } else if (labels.contains("database") || labels.contains("nosql") || labels.contains("sql")
+                    || labels.contains("bigdata")) {
+                return "database";
+            } else if (labels.contains("clustering")) {
+                return "clustering";
+            } else if (labels.contains("monitoring")) {
+                return "monitoring";
+            } else if (labels.contains("api")) {
+                return "api";
+            } else if (labels.contains("cache")) {
+                return "cache";
+            } else if (labels.size() == 1) {
+                return labels.iterator().next();
+            }
+        }
+        return "";
+    }
+
+    @Test
+    void defaultRules() {
+        final LabelClassifier classifier = LabelClassifier.loadDefault();
+        final String[] names = { "aws2-s3", "aws", "azure-storage-blob", "google-pubsub", "spring-ws", "kubernetes-pods",
+                "openshift-builds", "openstack-nova", "digitalocean", "file", "ftp", "a", "" };
+        final String[] labels = { null, "", ",", ",,", "core", "file,core", "cloud,file", "document", "websocket,http",
+                "messaging", "bigdata,nosql", "sql", "clustering", "monitoring", "api,rest", "cache,clustering",
+                "mail", "mail,", "mail,mail", "mail,mail,", ",mail", "mail,,mail", "mail,mai", "mai,mail", "rest,mail",
+                "coredump", "sql,core", "filesystem" };
+        for (Kind kind : Kind.values()) {
+            for (String name : names) {
+                for (String label : labels) {
+                    Assertions.assertEquals(legacyPrimaryGroup(kind, label, name),
+                            classifier.classify(kind, label, name),
+                            "kind: " + kind + ", name: " + name + ", labels: " + label);
+                }
+            }
+        }
+    }
+
+    @Test
+    void customRules() throws IOException {
+        final String rules = "# custom\n" //
+                + "name:aws = aws\n" //
+                + "name:aws2-s3 = storage\n" //
+                + "\n" //
+                + "label:ai = ai\n" //
+                + "label:core = core\n" //
+                + "label:ai = ignored\n";
+        final LabelClassifier classifier = LabelClassifier.parse(new BufferedReader(new StringReader(rules)), "test");
+        Assertions.assertEquals("storage", classifier.classify(Kind.component, null, "aws2-s3"));
+        Assertions.assertEquals("aws", classifier.classify(Kind.component, null, "aws2-sqs"));
+        Assertions.assertEquals("ai", classifier.classify(Kind.component, "core,ai", "langchain4j"));
+        Assertions.assertEquals("file", classifier.classify(Kind.component, "file", "file"));
+        Assertions.assertEquals("", classifier.classify(Kind.component, "file,ftp", "ftp"));
+
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> LabelClassifier.parse(new BufferedReader(new StringReader("foo = bar\n")), "test"));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> LabelClassifier.parse(new BufferedReader(new StringReader("label:foo\n")), "test"));
+    }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.l2x6.cq.PomTransformer.Engine;
+import org.l2x6.cq.PomTransformer.Transformation;
+import org.l2x6.cq.PomTransformer.TransformationContext;
+import org.w3c.dom.Document;
+
+public class LosslessDomTest {
+
+    private static final String QUIRKY_POM = "<?xml version='1.0' encoding='UTF-8'?>\r\n" //
+            + "<!DOCTYPE project>\r\n" //
+            + "<!-- a comment before the root element -->\r\n" //
+            + "<project  xsi:schemaLocation='http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd'\r\n" //
+            + "    xmlns=\"http://maven.apache.org/POM/4.0.0\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" >\r\n" //
+            + "    <modelVersion>4.0.0</modelVersion >\r\n" //
+            + "    <artifactId>foo</artifactId>\r\n" //
+            + "    <properties>\r\n" //
+            + "        <foo>a &amp; b &#x3C; c &gt; d</foo>\r\n" //
+            + "        <bar><![CDATA[<bar/>]]></bar>\r\n" //
+            + "        <baz />\r\n" //
+            + "    </properties>\r\n" //
+            + "    <?some-pi data?>\r\n" //
+            + "</project>\r\n" //
+            + "<!-- a trailing comment -->";
+
+    @Test
+    void roundTrip() {
+        final Document document = LosslessDom.parse(QUIRKY_POM);
+        Assertions.assertEquals("a & b < c > d",
+                document.getDocumentElement().getElementsByTagName("foo").item(0).getTextContent());
+        Assertions.assertEquals("<bar/>",
+                document.getDocumentElement().getElementsByTagName("bar").item(0).getTextContent());
+        Assertions.assertEquals("http://maven.apache.org/POM/4.0.0", document.getDocumentElement().getNamespaceURI());
+        Assertions.assertEquals(QUIRKY_POM, LosslessDom.serialize(document, QUIRKY_POM, "\r\n"));
+    }
+
+    @Test
+    void changesAreLocal() {
+        final String expected = QUIRKY_POM
+                .replace("<artifactId>foo</artifactId>", "<artifactId>bar &amp; baz</artifactId>")
+                .replace("<baz />", "<baz>new</baz>");
+        PomTransformer.transform(
+                Arrays.asList(
+                        (Document document, TransformationContext context) -> document.getDocumentElement()
+                                .getElementsByTagName("artifactId").item(0).setTextContent("bar & baz"),
+                        Transformation.addOrSetProperty("baz", "new")),
+                Paths.get("pom.xml"),
+                () -> QUIRKY_POM,
+                Engine.LOSSLESS,
+                xml -> Assertions.assertEquals(expected, xml));
+    }
+
+    @Test
+    void malformed() {
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> LosslessDom.parse("<project>\n    <foo>\n</project>\n"));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> LosslessDom.parse("<project>&nbsp;</project>\n"));
+        for (String ref : new String[] { "&#xZZ;", "&#1114112;", "&#;", "&#-1;" }) {
+            final IllegalStateException e = Assertions.assertThrows(IllegalStateException.class,
+                    () -> LosslessDom.parse("<project>\n    <foo>" + ref + "</foo>\n</project>\n"));
+            Assertions.assertTrue(e.getMessage().contains("Invalid character reference " + ref), e.getMessage());
+        }
+    }
+
+}
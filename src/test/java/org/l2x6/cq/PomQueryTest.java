@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.maven.model.Model;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class PomQueryTest {
+
+    @Test
+    void sameAsModel() {
+        for (String pom : Arrays.asList("create-extension-pom/pom.xml", "create-extension-pom/extensions/pom.xml",
+                "pom-sorter/mvnd-rules/module-1/pom.xml")) {
+            final Path pomXmlPath = Paths.get("src/test/resources/projects").resolve(pom);
+            final Model model = CqUtils.readPom(pomXmlPath, StandardCharsets.UTF_8);
+            final PomQuery query = CqUtils.gavQuery()
+                    .value("project/name")
+                    .value("project/description")
+                    .value("project/packaging")
+                    .values("project/properties/*")
+                    .values("project/modules/module")
+                    .read(pomXmlPath, StandardCharsets.UTF_8);
+
+            Assertions.assertEquals(model.getName(), query.getValue("project/name"), pom);
+            Assertions.assertEquals(model.getDescription(), query.getValue("project/description"), pom);
+            Assertions.assertEquals(model.getArtifactId(), query.getValue("project/artifactId"), pom);
+            Assertions.assertEquals(model.getGroupId(), query.getValue("project/groupId"), pom);
+            Assertions.assertEquals(model.getVersion(), query.getValue("project/version"), pom);
+            Assertions.assertEquals(model.getParent() != null ? model.getParent().getVersion() : null,
+                    query.getValue("project/parent/version"), pom);
+            /* Model returns "jar" if packaging is not set */
+            Assertions.assertEquals(model.getPackaging(),
+                    query.getValue("project/packaging") != null ? query.getValue("project/packaging") : "jar", pom);
+            Assertions.assertEquals(model.getModules(), query.getValues("project/modules/module"), pom);
+            final Map<String, String> props = new LinkedHashMap<>();
+            model.getProperties().forEach((k, v) -> props.put((String) k, (String) v));
+            Assertions.assertEquals(props, query.getValueMap("project/properties/*"), pom);
+        }
+    }
+
+    @Test
+    void stopEarly() throws XMLStreamException {
+        /* Nothing after </properties> is read, so the malformed rest of the document does not matter */
+        final String pom = "<project>\n" //
+                + "    <name>  Foo :: Bar  </name>\n" //
+                + "    <properties>\n" //
+                + "        <foo>bar</foo>\n" //
+                + "        <baz><![CDATA[a & b]]> &amp; c</baz>\n" //
+                + "    </properties>\n" //
+                + "    <modules>\n" //
+                + "        <module>not read</module>\n" //
+                + "    <dependencies>&unknown;\n";
+        final PomQuery query = PomQuery.builder()
+                .value("project/name")
+                .values("project/properties/*")
+                .read(new StringReader(pom));
+        Assertions.assertEquals("Foo :: Bar", query.getValue("project/name"));
+        final Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("foo", "bar");
+        expected.put("baz", "a & b & c");
+        Assertions.assertEquals(expected, query.getValueMap("project/properties/*"));
+        Assertions.assertEquals(Arrays.asList("bar", "a & b & c"), query.getValues("project/properties/*"));
+        Assertions.assertThrows(IllegalStateException.class, () -> query.getValues("project/modules/module"));
+    }
+
+}
@@ -22,23 +22,68 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.stream.Stream;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.l2x6.cq.PomSorter.DependencyGroupOrder;
+import org.l2x6.cq.PomSorter.SortSummary;
+import org.l2x6.cq.PomTransformer.Engine;
 import org.l2x6.cq.PomTransformer.Transformation;
+import org.l2x6.cq.PomTransformer.TransformationContext;
+import org.w3c.dom.Document;
 
 public class PomSorterTest {
 
     @Test
     void sortDependencyManagement() throws IOException {
         final Path baseDir = Paths.get("target/test-classes/projects/pom-sorter/dependency-management");
-        PomSorter.sortDependencyManagement(baseDir, Arrays.asList("pom1.xml"));
+        PomSorter.sortDependencyManagement(baseDir, Arrays.asList("pom1.xml", "pom2.xml"));
         final Path expected = Paths.get("src/test/resources/expected/pom-sorter/dependency-management");
         TestUtils.assertTreesMatch(expected, baseDir);
     }
 
+    @Test
+    void sortDependencyManagementCrLf() throws IOException {
+        final String pomPath = "dependency-management/pom2.xml";
+        final Path srcPath = Paths.get("src/test/resources/projects/pom-sorter").resolve(pomPath);
+        final String src = new String(Files.readAllBytes(srcPath), StandardCharsets.UTF_8);
+        final String expected = new String(
+                Files.readAllBytes(Paths.get("src/test/resources/expected/pom-sorter").resolve(pomPath)),
+                StandardCharsets.UTF_8);
+        Assertions.assertEquals(expected.replace("\n", "\r\n"),
+                PomSorter.sortDependencyManagement(src.replace("\n", "\r\n"), srcPath));
+    }
+
+    @Test
+    void sortDependencyManagementCustomGroups() throws IOException {
+        final Path srcPath = Paths.get("src/test/resources/projects/pom-sorter/dependency-management/pom1.xml");
+        final String src = new String(Files.readAllBytes(srcPath), StandardCharsets.UTF_8);
+        final String expected = new String(
+                Files.readAllBytes(Paths.get(
+                        "src/test/resources/expected/pom-sorter/dependency-management-custom-groups/pom1.xml")),
+                StandardCharsets.UTF_8);
+        final DependencyGroupOrder groupOrder = new DependencyGroupOrder(
+                Arrays.asList(
+                        new DependencyGroup("org.apache.camel.quarkus", "Camel Quarkus"),
+                        new DependencyGroup("org.foo", null)),
+                "Others");
+        Assertions.assertEquals(expected, PomSorter.sortDependencyManagement(src, srcPath, groupOrder));
+        for (Engine engine : Engine.values()) {
+            PomTransformer.transform(
+                    Collections.singletonList((Document document, TransformationContext context) -> context
+                            .sortDependencyManagement(groupOrder)),
+                    srcPath,
+                    () -> src,
+                    engine,
+                    xml -> Assertions.assertEquals(expected, xml, engine.name()));
+        }
+    }
+
     @Test
     void sortModules() throws IOException {
         final Path baseDir = Paths.get("target/test-classes/projects/pom-sorter/modules");
@@ -47,13 +92,70 @@ public class PomSorterTest {
         TestUtils.assertTreesMatch(expected, baseDir);
     }
 
+    @Test
+    void sortBatch() throws IOException {
+        final Path baseDir = TestUtils.createProjectFromTemplate("pom-sorter", "pom-sorter-batch");
+        final Path expectedDir = Paths.get("src/test/resources/expected/pom-sorter");
+        final List<Path> dependencyManagementPoms = Arrays.asList(
+                baseDir.resolve("dependency-management/pom1.xml"),
+                baseDir.resolve("dependency-management/pom2.xml"));
+        final List<Path> modulesPoms = Collections.singletonList(baseDir.resolve("modules/pom1.xml"));
+
+        final SortSummary summary = PomSorter.sort(dependencyManagementPoms, modulesPoms, DependencyGroupOrder.DEFAULT,
+                2, false);
+        Assertions.assertEquals(3, summary.getResults().size());
+        Assertions.assertEquals(3, summary.getModifiedPaths().size());
+        for (String pomPath : Arrays.asList("dependency-management/pom1.xml", "dependency-management/pom2.xml",
+                "modules/pom1.xml")) {
+            org.assertj.core.api.Assertions.assertThat(baseDir.resolve(pomPath))
+                    .hasSameTextualContentAs(expectedDir.resolve(pomPath), StandardCharsets.UTF_8);
+        }
+
+        Assertions.assertEquals(Collections.emptyList(),
+                PomSorter.sort(dependencyManagementPoms, modulesPoms, DependencyGroupOrder.DEFAULT, 2, false)
+                        .getModifiedPaths());
+    }
+
+    @Test
+    void sortDependencyManagementTransformation() throws IOException {
+        assertSortTransformation("dependency-management/pom1.xml", Transformation.sortDependencyManagement());
+    }
+
+    @Test
+    void sortModulesTransformation() throws IOException {
+        assertSortTransformation("modules/pom1.xml", Transformation.sortModules());
+    }
+
+    static void assertSortTransformation(String pomPath, Transformation transformation) throws IOException {
+        final Path srcPath = Paths.get("src/test/resources/projects/pom-sorter").resolve(pomPath);
+        final String src = new String(Files.readAllBytes(srcPath), StandardCharsets.UTF_8);
+        final String expected = new String(
+                Files.readAllBytes(Paths.get("src/test/resources/expected/pom-sorter").resolve(pomPath)),
+                StandardCharsets.UTF_8);
+        for (Engine engine : Engine.values()) {
+            PomTransformer.transform(Collections.singletonList(transformation), srcPath, () -> src, engine,
+                    xml -> Assertions.assertEquals(expected, xml, engine.name()));
+        }
+    }
+
     @Test
     void updateVirtualDependencies() throws IOException {
+        assertUpdateVirtualDependencies(Paths.get("target/test-classes/projects/pom-sorter"), Engine.DOM, "mvnd-rules");
+    }
+
+    @Test
+    void updateVirtualDependenciesLossless() throws IOException {
+        assertUpdateVirtualDependencies(
+                TestUtils.createProjectFromTemplate("pom-sorter", "pom-sorter-lossless"), Engine.LOSSLESS,
+                /* Unlike Transformer, LosslessDom keeps <build></build> as is */
+                "mvnd-rules-lossless");
+    }
+
+    static void assertUpdateVirtualDependencies(Path baseDir, Engine engine, String expectedDir) throws IOException {
         final Set<String> aids = new TreeSet<>(Arrays.asList("camel-quarkus-base64",
                 "camel-quarkus-direct",
                 "camel-quarkus-foo",
                 "camel-quarkus-bar"));
-        final Path baseDir = Paths.get("target/test-classes/projects/pom-sorter");
         try (Stream<Path> files = Files.list(baseDir.resolve("mvnd-rules"))) {
             files
             .filter(p -> Files.isDirectory(p) && !"support".equals(p.getFileName().toString()))
@@ -61,7 +163,7 @@ public class PomSorterTest {
             .map(p -> p.resolve("pom.xml"))
             .filter(p -> Files.exists(p))
             .forEach(pomXmlPath -> {
-                        new PomTransformer(pomXmlPath, StandardCharsets.UTF_8)
+                        new PomTransformer(pomXmlPath, StandardCharsets.UTF_8, false, engine)
                                 .transform(Transformation.updateMappedDependencies(
                                         Gavtcs::isVirtualDeployment,
                                         Gavtcs.deploymentVitualMapper(gavtcs -> aids.contains(gavtcs.getArtifactId())),
@@ -70,7 +172,7 @@ public class PomSorterTest {
             });
         }
 
-        final Path expected = Paths.get("src/test/resources/expected/pom-sorter/mvnd-rules");
+        final Path expected = Paths.get("src/test/resources/expected/pom-sorter").resolve(expectedDir);
         TestUtils.assertTreesMatch(expected, baseDir.resolve("mvnd-rules"));
     }
 }
@@ -16,11 +16,19 @@
  */
 package org.l2x6.cq;
 
+import java.io.IOException;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -28,12 +36,13 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.TransformerFactoryConfigurationError;
 import javax.xml.transform.dom.DOMResult;
 import javax.xml.transform.stream.StreamSource;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathFactory;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.l2x6.cq.PomTransformer.Engine;
 import org.l2x6.cq.PomTransformer.Transformation;
+import org.l2x6.cq.PomTransformer.TransformationContext;
+import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
 public class PomTransformerTest {
@@ -543,9 +552,116 @@ public class PomTransformerTest {
     }
 
 
+    @Test
+    void addAndSortModules() {
+        final String source = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                + "<project xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns=\"http://maven.apache.org/POM/4.0.0\"\n" //
+                + "         xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd\">\n" //
+                + "    <modelVersion>4.0.0</modelVersion>\n" //
+                + "    <modules>\n" //
+                + "        <module>foo</module>\n" //
+                + "\n" //
+                + "        <!-- extensions a..z -->\n" //
+                + "        <module>mod3</module>\n" //
+                + "        <module>mod1</module>\n" //
+                + "    </modules>\n" //
+                + "</project>\n";
+        final String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                + "<project xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns=\"http://maven.apache.org/POM/4.0.0\"\n" //
+                + "         xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd\">\n" //
+                + "    <modelVersion>4.0.0</modelVersion>\n" //
+                + "    <modules>\n" //
+                + "        <module>foo</module>\n" //
+                + "\n" //
+                + "        <!-- extensions a..z -->\n" //
+                + "        <module>mod1</module>\n" //
+                + "        <module>mod2</module>\n" //
+                + "        <module>mod3</module>\n" //
+                + "    </modules>\n" //
+                + "</project>\n";
+        asserTransformation(source, Arrays.asList(Transformation.addModule("mod2"), Transformation.sortModules()), expected);
+    }
+
+    @Test
+    void setParent() {
+        final String source = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                + "<project xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns=\"http://maven.apache.org/POM/4.0.0\"\n" //
+                + "         xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd\">\n" //
+                + "    <modelVersion>4.0.0</modelVersion>\n" //
+                + "    <parent>\n" //
+                + "        <groupId>org.acme</groupId>\n" //
+                + "        <artifactId>parent</artifactId>\n" //
+                + "        <version>0.1-SNAPSHOT</version>\n" //
+                + "        <relativePath>../parent/pom.xml</relativePath>\n" //
+                + "    </parent>\n" //
+                + "    <artifactId>child</artifactId>\n" //
+                + "</project>\n";
+        final String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                + "<project xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns=\"http://maven.apache.org/POM/4.0.0\"\n" //
+                + "         xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd\">\n" //
+                + "    <modelVersion>4.0.0</modelVersion>\n" //
+                + "    <parent>\n" //
+                + "        <groupId>org.acme</groupId>\n" //
+                + "        <artifactId>new-parent</artifactId>\n" //
+                + "        <version>0.1-SNAPSHOT</version>\n" //
+                + "    </parent>\n" //
+                + "    <artifactId>child</artifactId>\n" //
+                + "</project>\n";
+        asserTransformation(source, Collections.singletonList(Transformation.setParent("new-parent", null)), expected);
+    }
+
+    @Test
+    void removeProperty() {
+        final String source = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                + "<project xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns=\"http://maven.apache.org/POM/4.0.0\"\n" //
+                + "         xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd\">\n" //
+                + "    <modelVersion>4.0.0</modelVersion>\n" //
+                + "    <properties>\n" //
+                + "        <foo>1</foo>\n" //
+                + "        <!-- bar comment -->\n" //
+                + "        <bar>2</bar>\n" //
+                + "    </properties>\n" //
+                + "</project>\n";
+        final String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                + "<project xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns=\"http://maven.apache.org/POM/4.0.0\"\n" //
+                + "         xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd\">\n" //
+                + "    <modelVersion>4.0.0</modelVersion>\n" //
+                + "    <properties>\n" //
+                + "        <foo>1</foo>\n" //
+                + "    </properties>\n" //
+                + "</project>\n";
+        asserTransformation(source, Collections.singletonList(Transformation.removeProperty(true, true, "bar")), expected);
+    }
+
+    @Test
+    void skipWriteIfUnchanged() throws IOException {
+        final String source = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n" //
+                + "    <modelVersion>4.0.0</modelVersion>\n" //
+                + "    <modules>\n" //
+                + "        <module>foo</module>\n" //
+                + "    </modules>\n" //
+                + "</project>\n";
+        final Path dir = TestUtils.newProjectDir("pom-transformer-skip-write");
+        final Path pomXml = dir.resolve("pom.xml");
+        Files.write(pomXml, source.getBytes(StandardCharsets.UTF_8));
+
+        Assertions.assertFalse(new PomTransformer(pomXml, StandardCharsets.UTF_8)
+                .transform(Transformation.removeModule(true, true, "bar")));
+        Assertions.assertTrue(new PomTransformer(pomXml, StandardCharsets.UTF_8, true)
+                .transform(Transformation.addModule("bar")));
+        Assertions.assertEquals(source.replace("<module>foo</module>\n", "<module>foo</module>\n        <module>bar</module>\n"),
+                new String(Files.readAllBytes(pomXml), StandardCharsets.UTF_8));
+        try (Stream<Path> files = Files.list(dir)) {
+            Assertions.assertEquals(Collections.singletonList(pomXml), files.collect(Collectors.toList()));
+        }
+    }
+
     static void asserTransformation(String src, Collection<Transformation> transformations, String expected) {
-        PomTransformer.transform(transformations, Paths.get("pom.xml"),
-                () -> src, xml -> Assertions.assertEquals(expected, xml));
+        for (Engine engine : Engine.values()) {
+            PomTransformer.transform(transformations, Paths.get("pom.xml"),
+                    () -> src, engine, xml -> Assertions.assertEquals(expected, xml, engine.name()));
+        }
     }
 
     @Test
@@ -877,7 +993,51 @@ public class PomTransformerTest {
                 expected);
     }
 
+    @Test
+    void addDependenciesIfNeededBulk() {
+        final String source = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n" //
+                + "    <modelVersion>4.0.0</modelVersion>\n" //
+                + "    <dependencies>\n" //
+                + "        <dependency>\n" //
+                + "            <groupId>org.acme</groupId>\n" //
+                + "            <artifactId>b</artifactId>\n" //
+                + "        </dependency>\n" //
+                + "\n" //
+                + "        <!-- a comment before d -->\n" //
+                + "        <dependency>\n" //
+                + "            <groupId>org.acme</groupId>\n" //
+                + "            <artifactId>d</artifactId>\n" //
+                + "        </dependency>\n" //
+                + "        <dependency>\n" //
+                + "            <groupId>org.acme</groupId>\n" //
+                + "            <artifactId>c</artifactId>\n" //
+                + "            <scope>test</scope>\n" //
+                + "        </dependency>\n" //
+                + "    </dependencies>\n" //
+                + "</project>\n";
+        final Comparator<Gavtcs> comparator = Gavtcs.scopeAndTypeFirstComparator();
+        final List<Gavtcs> newDeps = Arrays.asList(
+                new Gavtcs("org.acme", "f", null),
+                new Gavtcs("org.acme", "e", null, null, null, "test"),
+                new Gavtcs("org.acme", "d", null),
+                new Gavtcs("org.acme", "c", null),
+                new Gavtcs("org.acme", "a", null),
+                new Gavtcs("org.acme", "c", null));
 
+        final String[] expected = new String[1];
+        PomTransformer.transform(
+                newDeps.stream()
+                        .map(dep -> Transformation.addDependencyIfNeeded(dep, comparator))
+                        .collect(Collectors.toList()),
+                Paths.get("pom.xml"),
+                () -> source,
+                xml -> expected[0] = xml);
+        asserTransformation(source,
+                Collections.singletonList((Document document, TransformationContext context) -> context
+                        .addDependenciesIfNeeded(newDeps, comparator)),
+                expected[0]);
+    }
 
     @Test
     void addDependencyTestAfterCompile() {
@@ -1070,11 +1230,10 @@ public class PomTransformerTest {
 
     static void assertFormat(String xml, String expectedIndent, String expectedEol)
             throws TransformerConfigurationException, TransformerException, TransformerFactoryConfigurationError {
-        final XPath xPath = XPathFactory.newInstance().newXPath();
         DOMResult result = new DOMResult();
         TransformerFactory.newInstance().newTransformer().transform(new StreamSource(new StringReader(xml)), result);
         final Node document = result.getNode();
-        Assertions.assertEquals(expectedIndent, PomTransformer.detectIndentation(document, xPath));
+        Assertions.assertEquals(expectedIndent, PomTransformer.detectIndentation(document));
         Assertions.assertEquals(expectedEol, PomTransformer.detectEol(xml));
     }
 
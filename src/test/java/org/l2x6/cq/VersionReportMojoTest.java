@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2020 CQ Maven Plugin
+ * project contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.l2x6.cq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class VersionReportMojoTest {
+
+    @Test
+    void closeAll() {
+        final List<String> closed = new ArrayList<>();
+        final List<AutoCloseable> closeables = Arrays.asList(
+                () -> closed.add("a"),
+                () -> {
+                    closed.add("b");
+                    throw new IllegalStateException("b");
+                },
+                () -> {
+                    closed.add("c");
+                    throw new IllegalStateException("c");
+                },
+                () -> closed.add("d"));
+
+        final IllegalStateException e = Assertions.assertThrows(IllegalStateException.class,
+                () -> VersionReportMojo.closeAll(closeables, null));
+        Assertions.assertEquals("b", e.getMessage());
+        Assertions.assertEquals("c", e.getSuppressed()[0].getMessage());
+        Assertions.assertEquals(Arrays.asList("a", "b", "c", "d"), closed);
+
+        closed.clear();
+        final RuntimeException inFlight = new RuntimeException("in flight");
+        VersionReportMojo.closeAll(closeables, inFlight);
+        Assertions.assertEquals(Arrays.asList("a", "b", "c", "d"), closed);
+        Assertions.assertEquals(2, inFlight.getSuppressed().length);
+    }
+
+    @Test
+    void parseVersions() {
+        Assertions.assertEquals(Arrays.asList("1.0.0", "1.1.0", "1.2.0"), VersionReportMojo.parseVersions("1.0.0..1.1.0..1.2.0"));
+        Assertions.assertThrows(IllegalStateException.class, () -> VersionReportMojo.parseVersions("1.0.0"));
+        Assertions.assertThrows(IllegalStateException.class, () -> VersionReportMojo.parseVersions("1.0.0..1.1.0.."));
+    }
+
+}